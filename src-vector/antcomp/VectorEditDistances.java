@@ -0,0 +1,163 @@
+/* This Source Code Form is subject to the terms of the hermA Licence.
+ * If a copy of the licence was not distributed with this file, You have
+ * received this Source Code Form in a manner that does not comply with
+ * the terms of the licence.
+ */
+package antcomp;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * {@link BatchEditDistances} implementation using the
+ * incubating Vector API ({@code jdk.incubator.vector}).
+ * <p>
+ * One lane of the preferred integer vector species of the
+ * platform is used per candidate sequence (for example, 16 lanes
+ * with AVX-512 and 8 lanes with AVX2); the dynamic programming
+ * tables of all lanes are interleaved in memory, so that every
+ * table row is one vector. Candidates equal to the loaded
+ * sequence are not computed (their distance is {@code 0});
+ * all other lanes are padded to the longest candidate in the batch.
+ * </p>
+ * <p>
+ * This class requires Java 16 or newer and has to be compiled
+ * and run with {@code --add-modules jdk.incubator.vector}.
+ * It is not used on platforms whose preferred vector species
+ * has fewer than {@value #MIN_LANES} integer lanes.
+ * </p>
+ */
+public class VectorEditDistances extends BatchEditDistances {
+	
+	private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+	
+	private static final int MIN_LANES = 4;
+	
+	private static final int PADDING = -1;
+	private static final int EQUAL = -1;
+	
+	private String pQueryString;
+	private int[] pQuery;
+	private int pQuerySize;
+	
+	private int[] pCandidates;
+	private int[] pTable;
+	private final int[] pSizes;
+	
+	/**
+	 * Initializes a new instance of this class.
+	 */
+	public VectorEditDistances() {
+		super(SPECIES.length());
+		// ohne echte Vektorbefehle lohnt sich der Batch-Pfad nicht
+		if (SPECIES.length() < MIN_LANES)
+			throw new UnsupportedOperationException("Vector species " + SPECIES + " has fewer than " + Integer.toString(MIN_LANES) + " lanes.");
+		
+		final int lanes = SPECIES.length();
+		pQuery = new int[16];
+		pCandidates = new int[16 * lanes];
+		pTable = new int[17 * lanes];
+		pSizes = new int[lanes];
+	}
+	
+	@Override
+	public void load(final CharSequence query) {
+		pQueryString = query.toString();
+		final int length = query.length();
+		final int size = EditDistances.codePointCount(query);
+		if (pQuery.length < size)
+			pQuery = new int[size];
+		int codePoint;
+		int k = 0;
+		for (int i = 0; i < length; i += Character.charCount(codePoint)) {
+			codePoint = Character.codePointAt(query, i);
+			pQuery[k++] = codePoint;
+		}
+		pQuerySize = size;
+		
+		final int tableSize = (size + 1) * SPECIES.length();
+		if (pTable.length < tableSize)
+			pTable = new int[tableSize];
+	}
+	
+	@Override
+	public void editDistances(final CharSequence[] candidates, final int count, final long[] result) {
+		final int lanes = SPECIES.length();
+		if ((count < 0) || (count > lanes))
+			throw new IllegalArgumentException("Batch size (" + Integer.toString(count) + ") has to be between 0 and " + Integer.toString(lanes) + ".");
+		
+		final int m = pQuerySize;
+		final int[] query = pQuery;
+		final int[] table = pTable;
+		final int[] sizes = pSizes;
+		
+		// Kandidaten verzahnt ablegen; gleiche nicht berechnen
+		int maxSize = 0;
+		for (int k = 0; k < lanes; k++) {
+			final int size;
+			if (k >= count)
+				size = 0;
+			else if (pQueryString.contentEquals(candidates[k]))
+				size = EQUAL;
+			else
+				size = EditDistances.codePointCount(candidates[k]);
+			sizes[k] = size;
+			if (size > maxSize)
+				maxSize = size;
+		}
+		if (pCandidates.length < maxSize * lanes)
+			pCandidates = new int[maxSize * lanes];
+		final int[] interleaved = pCandidates;
+		for (int k = 0; k < lanes; k++) {
+			int j = 0;
+			if ((k < count) && (sizes[k] != EQUAL)) {
+				final CharSequence candidate = candidates[k];
+				final int length = candidate.length();
+				int codePoint;
+				for (int i = 0; i < length; i += Character.charCount(codePoint)) {
+					codePoint = Character.codePointAt(candidate, i);
+					interleaved[j * lanes + k] = codePoint;
+					j++;
+				}
+			}
+			for (; j < maxSize; j++)
+				interleaved[j * lanes + k] = PADDING;
+		}
+		
+		// Initialisierung
+		for (int i = 0; i <= m; i++)
+			IntVector.broadcast(SPECIES, i).intoArray(table, i * lanes);
+		for (int k = 0; k < count; k++) {
+			if (sizes[k] == EQUAL)
+				result[k] = 0;
+			else if (sizes[k] == 0)
+				result[k] = m;
+		}
+		
+		// Iteration, eine Tabellenzeile je Vektor
+		final IntVector one = IntVector.broadcast(SPECIES, 1);
+		final int lastRow = m * lanes;
+		for (int j = 0; j < maxSize; j++) {
+			final IntVector codePoints2 = IntVector.fromArray(SPECIES, interleaved, j * lanes);
+			IntVector leftAbove = IntVector.fromArray(SPECIES, table, 0);
+			IntVector left = IntVector.broadcast(SPECIES, j + 1);
+			left.intoArray(table, 0);
+			for (int i = 1; i <= m; i++) {
+				final int base = i * lanes;
+				final IntVector above = IntVector.fromArray(SPECIES, table, base);
+				final VectorMask<Integer> different = codePoints2.compare(VectorOperators.NE, query[i - 1]);
+				left = above.min(left).add(one).min(leftAbove.add(one, different));
+				left.intoArray(table, base);
+				leftAbove = above;
+			}
+			
+			// Ergebnisse der hier endenden Kandidaten sichern
+			for (int k = 0; k < count; k++)
+				if (sizes[k] == j + 1)
+					result[k] = table[lastRow + k];
+		}
+	}
+	
+}
@@ -0,0 +1,26 @@
+/* This Source Code Form is subject to the terms of the hermA Licence.
+ * If a copy of the licence was not distributed with this file, You have
+ * received this Source Code Form in a manner that does not comply with
+ * the terms of the licence.
+ */
+package antcomp;
+
+/**
+ * Receives the author edit distances computed by
+ * {@link BatchEditDistances#authorEditDistances(MetadataLine[], int, int, AuthorDistanceConsumer)}.
+ */
+public interface AuthorDistanceConsumer {
+	
+	/**
+	 * Receives the author edit distance of a {@link MetadataLine}.
+	 * 
+	 * @param index
+	 * the index of the {@link MetadataLine} in the array
+	 * 
+	 * @param authorDistance
+	 * the edit distance between the loaded author name
+	 * and the author name of the {@link MetadataLine}
+	 */
+	void accept(int index, long authorDistance);
+	
+}
@@ -0,0 +1,213 @@
+/* This Source Code Form is subject to the terms of the hermA Licence.
+ * If a copy of the licence was not distributed with this file, You have
+ * received this Source Code Form in a manner that does not comply with
+ * the terms of the licence.
+ */
+package antcomp;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Index over the author names of a list of {@link MetadataLine}
+ * instances which finds all author names within a given edit
+ * distance of a query.
+ * <p>
+ * All distinct author names are stored in a trie over their
+ * code points. A query traverses the trie depth-first and
+ * computes one row of the edit distance table
+ * (see {@link EditDistances#editDistance(CharSequence, CharSequence)})
+ * per trie node, from the row of the parent node; thus the rows
+ * for a common prefix of several author names are computed only
+ * once. A subtree is skipped as soon as the minimum of the row
+ * exceeds the threshold, because the values in the last column
+ * of the table can only be at least as large as this minimum
+ * further down. The costs of a query therefore depend on the
+ * number of distinct prefixes close to the query rather than on
+ * the number of {@link MetadataLine} instances.
+ * </p>
+ * <p>
+ * The distances are exactly the same as computed by
+ * {@link EditDistances#editDistance(CharSequence, CharSequence)}.
+ * Instances of this class are immutable and thread-safe.
+ * </p>
+ */
+public class AuthorTrie {
+	
+	private static final int NONE = -1;
+	
+	private final int[] pCodePoints;
+	private final int[] pFirstChildren;
+	private final int[] pNextSiblings;
+	private final int[] pDepths;
+	private final int pMaxDepth;
+	
+	private final int[] pRecordStarts;
+	private final int[] pRecords;
+	
+	/**
+	 * Initializes a new instance of this class, indexing the author
+	 * names of the given {@link MetadataLine} instances.
+	 * 
+	 * @param metadata
+	 * the {@link MetadataLine} instances; not {@code null},
+	 * and the elements must not be {@code null} either
+	 */
+	public AuthorTrie(final List<MetadataLine> metadata) {
+		final int n = metadata.size();
+		
+		int capacity = 16;
+		int[] codePoints = new int[capacity];
+		int[] firstChildren = new int[capacity];
+		int[] nextSiblings = new int[capacity];
+		int[] depths = new int[capacity];
+		int nodeCount = 1;
+		firstChildren[0] = NONE;
+		nextSiblings[0] = NONE;
+		int maxDepth = 0;
+		
+		// Einfuegen
+		final int[] terminals = new int[n];
+		for (int r = 0; r < n; r++) {
+			final String author = metadata.get(r).getAuthor();
+			final int length = author.length();
+			int node = 0;
+			int codePoint;
+			for (int i = 0; i < length; i += Character.charCount(codePoint)) {
+				codePoint = Character.codePointAt(author, i);
+				int child = firstChildren[node];
+				while ((child != NONE) && (codePoints[child] != codePoint))
+					child = nextSiblings[child];
+				if (child == NONE) {
+					if (nodeCount == capacity) {
+						capacity *= 2;
+						codePoints = Arrays.copyOf(codePoints, capacity);
+						firstChildren = Arrays.copyOf(firstChildren, capacity);
+						nextSiblings = Arrays.copyOf(nextSiblings, capacity);
+						depths = Arrays.copyOf(depths, capacity);
+					}
+					child = nodeCount++;
+					codePoints[child] = codePoint;
+					firstChildren[child] = NONE;
+					nextSiblings[child] = firstChildren[node];
+					firstChildren[node] = child;
+					depths[child] = depths[node] + 1;
+					if (depths[child] > maxDepth)
+						maxDepth = depths[child];
+				}
+				node = child;
+			}
+			terminals[r] = node;
+		}
+		pCodePoints = Arrays.copyOf(codePoints, nodeCount);
+		pFirstChildren = Arrays.copyOf(firstChildren, nodeCount);
+		pNextSiblings = Arrays.copyOf(nextSiblings, nodeCount);
+		pDepths = Arrays.copyOf(depths, nodeCount);
+		pMaxDepth = maxDepth;
+		
+		// Datensaetze je Knoten, aufsteigend sortiert
+		pRecordStarts = new int[nodeCount + 1];
+		for (final int terminal : terminals)
+			pRecordStarts[terminal + 1]++;
+		for (int node = 0; node < nodeCount; node++)
+			pRecordStarts[node + 1] += pRecordStarts[node];
+		pRecords = new int[n];
+		final int[] positions = Arrays.copyOf(pRecordStarts, nodeCount);
+		for (int r = 0; r < n; r++)
+			pRecords[positions[terminals[r]]++] = r;
+	}
+	
+	/**
+	 * Returns the indices of all {@link MetadataLine} instances
+	 * (in the list passed to the constructor) whose author name
+	 * has an edit distance of at most the given threshold to
+	 * the given author name.
+	 * 
+	 * @param author
+	 * the author name; not {@code null}
+	 * 
+	 * @param threshold
+	 * the threshold for the edit distance
+	 * 
+	 * @return
+	 * the indices, in ascending order
+	 */
+	public int[] query(final CharSequence author, final long threshold) {
+		final int m = EditDistances.codePointCount(author);
+		final int[] query = new int[m];
+		final int length = author.length();
+		int codePoint;
+		int k = 0;
+		for (int i = 0; i < length; i += Character.charCount(codePoint)) {
+			codePoint = Character.codePointAt(author, i);
+			query[k++] = codePoint;
+		}
+		
+		// eine Zeile je Tiefe; Zeile 0 gehoert zur Wurzel
+		final int width = m + 1;
+		final int[] rows = new int[(pMaxDepth + 1) * width];
+		for (int i = 0; i <= m; i++)
+			rows[i] = i;
+		
+		// leerer Autorname (Wurzel)
+		int count = pRecordStarts[1] - pRecordStarts[0];
+		int[] result = new int[Math.max(16, count)];
+		if (m <= threshold)
+			System.arraycopy(pRecords, pRecordStarts[0], result, 0, count);
+		else
+			count = 0;
+		
+		int[] stack = new int[16];
+		int stackSize = 0;
+		for (int child = pFirstChildren[0]; child != NONE; child = pNextSiblings[child]) {
+			if (stackSize == stack.length)
+				stack = Arrays.copyOf(stack, 2 * stackSize);
+			stack[stackSize++] = child;
+		}
+		while (stackSize > 0) {
+			final int node = stack[--stackSize];
+			final int depth = pDepths[node];
+			final int codePoint2 = pCodePoints[node];
+			final int above = (depth - 1) * width;
+			final int current = depth * width;
+			
+			int left = rows[above] + 1;
+			rows[current] = left;
+			int min = left;
+			for (int i = 1; i <= m; i++) {
+				int value = rows[above + i] + 1;
+				if (left + 1 < value)
+					value = left + 1;
+				final int leftAbove = rows[above + i - 1] + ((query[i - 1] == codePoint2) ? 0 : 1);
+				if (leftAbove < value)
+					value = leftAbove;
+				rows[current + i] = value;
+				left = value;
+				if (value < min)
+					min = value;
+			}
+			
+			if (min > threshold)
+				continue;
+			
+			if ((rows[current + m] <= threshold) && (pRecordStarts[node] < pRecordStarts[node + 1])) {
+				final int records = pRecordStarts[node + 1] - pRecordStarts[node];
+				if (count + records > result.length)
+					result = Arrays.copyOf(result, Math.max(2 * result.length, count + records));
+				System.arraycopy(pRecords, pRecordStarts[node], result, count, records);
+				count += records;
+			}
+			
+			for (int child = pFirstChildren[node]; child != NONE; child = pNextSiblings[child]) {
+				if (stackSize == stack.length)
+					stack = Arrays.copyOf(stack, 2 * stackSize);
+				stack[stackSize++] = child;
+			}
+		}
+		
+		final int[] sorted = Arrays.copyOf(result, count);
+		Arrays.sort(sorted);
+		return sorted;
+	}
+	
+}
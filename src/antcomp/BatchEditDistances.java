@@ -0,0 +1,178 @@
+/* This Source Code Form is subject to the terms of the hermA Licence.
+ * If a copy of the licence was not distributed with this file, You have
+ * received this Source Code Form in a manner that does not comply with
+ * the terms of the licence.
+ */
+package antcomp;
+
+import java.lang.reflect.Constructor;
+
+/**
+ * Computes (classical) edit distances between one loaded
+ * character sequence and a batch of other character sequences.
+ * <p>
+ * Implementations are inter-sequence parallel: Up to
+ * {@link #getLanes()} candidate sequences are processed at once,
+ * one SIMD lane per candidate. The only implementation,
+ * {@code antcomp.VectorEditDistances}, uses the incubating
+ * Vector API ({@code jdk.incubator.vector}) of Java 16 and newer;
+ * as this program targets Java 8, its source code is kept in the
+ * separate directory {@code src-vector} and it is only used if it
+ * has been compiled and the module is available at run time
+ * (see {@link #newInstance()}). Otherwise, the
+ * {@link MetadataComparer} implementations fall back to
+ * {@link EditDistances#editDistance(CharSequence, CharSequence)}
+ * for every candidate.
+ * </p>
+ * <p>
+ * The results are identical to those of
+ * {@link EditDistances#editDistance(CharSequence, CharSequence)}
+ * (including its Unicode awareness).
+ * </p>
+ * <p>
+ * Instances of this class keep scratch buffers between calls
+ * and are therefore not thread-safe.
+ * </p>
+ */
+public abstract class BatchEditDistances {
+	
+	private static final String IMPLEMENTATION_CLASS_NAME = "antcomp.VectorEditDistances";
+	
+	private static final Constructor<? extends BatchEditDistances> IMPLEMENTATION = findImplementation();
+	
+	private final int pLanes;
+	
+	private final String[] pAuthors;
+	private final long[] pAuthorDistances;
+	
+	/**
+	 * Initializes a new instance of this class.
+	 * 
+	 * @param lanes
+	 * the maximum number of candidate sequences
+	 * processed in a single call of
+	 * {@link #editDistances(CharSequence[], int, long[])};
+	 * at least {@code 1}
+	 */
+	protected BatchEditDistances(final int lanes) {
+		if (lanes < 1)
+			throw new IllegalArgumentException("Number of lanes (" + Integer.toString(lanes) + ") has to be at least 1.");
+		pLanes = lanes;
+		pAuthors = new String[lanes];
+		pAuthorDistances = new long[lanes];
+	}
+	
+	/**
+	 * Creates a new instance of the SIMD implementation
+	 * of this class, if it is available.
+	 * 
+	 * @return
+	 * a new instance, or {@code null} if the implementation
+	 * has not been compiled or the module
+	 * {@code jdk.incubator.vector} is not available
+	 * (for example, because the Java virtual machine
+	 * was started without
+	 * {@code --add-modules jdk.incubator.vector})
+	 */
+	public static BatchEditDistances newInstance() {
+		if (IMPLEMENTATION == null)
+			return null;
+		try {
+			return IMPLEMENTATION.newInstance();
+		} catch (final ReflectiveOperationException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+	
+	private static Constructor<? extends BatchEditDistances> findImplementation() {
+		// fehlt die Klasse oder das Modul, wird skalar gerechnet
+		try {
+			final Constructor<? extends BatchEditDistances> constructor = Class.forName(IMPLEMENTATION_CLASS_NAME).asSubclass(BatchEditDistances.class).getConstructor();
+			constructor.newInstance();
+			return constructor;
+		} catch (final ReflectiveOperationException | LinkageError e) {
+			return null;
+		}
+	}
+	
+	/**
+	 * Returns the maximum number of candidate sequences
+	 * processed in a single call of
+	 * {@link #editDistances(CharSequence[], int, long[])}.
+	 * 
+	 * @return
+	 * the number of lanes; at least {@code 1}
+	 */
+	public final int getLanes() {
+		return pLanes;
+	}
+	
+	/**
+	 * Loads a character sequence to be subsequently compared
+	 * with batches of other character sequences.
+	 * 
+	 * @param query
+	 * the character sequence; not {@code null}
+	 */
+	public abstract void load(CharSequence query);
+	
+	/**
+	 * Computes the edit distances between the character sequence
+	 * loaded by the latest call to {@link #load(CharSequence)}
+	 * and the given character sequences.
+	 * 
+	 * @param candidates
+	 * the character sequences to compare with; the first
+	 * {@code count} elements must not be {@code null}
+	 * 
+	 * @param count
+	 * the number of character sequences to compare with;
+	 * between {@code 0} and {@link #getLanes()} (inclusive)
+	 * 
+	 * @param result
+	 * an array receiving the edit distance for
+	 * {@code candidates[k]} at index {@code k};
+	 * must have at least {@code count} elements
+	 */
+	public abstract void editDistances(CharSequence[] candidates, int count, long[] result);
+	
+	/**
+	 * Computes the edit distances between the character sequence
+	 * loaded by the latest call to {@link #load(CharSequence)}
+	 * and the author names of a range of {@link MetadataLine}
+	 * instances, in batches of {@link #getLanes()}.
+	 * <p>
+	 * The distances are passed to the {@link AuthorDistanceConsumer}
+	 * in ascending order of the indices; the distances of a batch
+	 * are passed only after all of them have been computed.
+	 * </p>
+	 * 
+	 * @param metadataLines
+	 * the {@link MetadataLine} instances; not {@code null},
+	 * and the elements in the range must not be {@code null} either
+	 * 
+	 * @param from
+	 * the first index of the range (inclusive)
+	 * 
+	 * @param to
+	 * the last index of the range (exclusive)
+	 * 
+	 * @param consumer
+	 * the {@link AuthorDistanceConsumer} receiving the distances;
+	 * not {@code null}
+	 */
+	public void authorEditDistances(final MetadataLine[] metadataLines, final int from, final int to, final AuthorDistanceConsumer consumer) {
+		final String[] authors = pAuthors;
+		final long[] authorDistances = pAuthorDistances;
+		final int lanes = pLanes;
+		for (int start = from; start < to; start += lanes) {
+			final int count = Math.min(lanes, to - start);
+			for (int k = 0; k < count; k++)
+				authors[k] = metadataLines[start + k].getAuthor();
+			editDistances(authors, count, authorDistances);
+			for (int k = 0; k < count; k++)
+				consumer.accept(start + k, authorDistances[k]);
+		}
+	}
+	
+}
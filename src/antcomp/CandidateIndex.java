@@ -0,0 +1,40 @@
+/* This Source Code Form is subject to the terms of the hermA Licence.
+ * If a copy of the licence was not distributed with this file, You have
+ * received this Source Code Form in a manner that does not comply with
+ * the terms of the licence.
+ */
+package antcomp;
+
+/**
+ * Can determine, for a {@link MetadataLine} in a list,
+ * which of the {@link MetadataLine} instances before it
+ * need to be compared with it.
+ * <p>
+ * Implementations must not leave out any {@link MetadataLine}
+ * whose comparison could lead to an output; they may include
+ * {@link MetadataLine} instances whose comparison does not.
+ * </p>
+ */
+public interface CandidateIndex {
+	
+	/**
+	 * Determines the candidates among the {@link MetadataLine}
+	 * instances before the given one.
+	 * 
+	 * @param index
+	 * the index of the {@link MetadataLine}
+	 * 
+	 * @param result
+	 * an array receiving the indices of the candidates
+	 * in ascending order; must have at least {@code index}
+	 * elements
+	 * 
+	 * @return
+	 * the number of candidates, or {@code -1}
+	 * if all {@link MetadataLine} instances before the given
+	 * one are candidates (in that case {@code result}
+	 * is left unchanged)
+	 */
+	int candidatesBefore(int index, int[] result);
+	
+}
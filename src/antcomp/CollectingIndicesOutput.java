@@ -0,0 +1,67 @@
+/* This Source Code Form is subject to the terms of the hermA Licence.
+ * If a copy of the licence was not distributed with this file, You have
+ * received this Source Code Form in a manner that does not comply with
+ * the terms of the licence.
+ */
+package antcomp;
+
+import java.util.Arrays;
+
+/**
+ * {@link IndicesOutput} implementation that collects
+ * the first index of every output index pair
+ * in an array.
+ * <p>
+ * This is useful if the second index is always the same,
+ * for example when one {@link MetadataLine} is compared with
+ * all others and the indices of the matching ones are needed.
+ * </p>
+ * <p>
+ * The mechanism for loading the indices is an implementation of
+ * {@link Output}.
+ * </p>
+ */
+public class CollectingIndicesOutput implements Output, IndicesOutput {
+	
+	private int[] pIndices;
+	private int pCount;
+	
+	private int pIndex1;
+	
+	/**
+	 * Initializes a new instance of this class.
+	 */
+	public CollectingIndicesOutput() {
+		pIndices = new int[16];
+		pCount = 0;
+	}
+	
+	@Override
+	public void outputIndexPair() {
+		if (pCount == pIndices.length)
+			pIndices = Arrays.copyOf(pIndices, 2 * pCount);
+		pIndices[pCount++] = pIndex1;
+	}
+	
+	@Override
+	public void setFirstIndex(final int index) {
+		pIndex1 = index;
+	}
+	
+	@Override
+	public void setSecondIndex(final int index) {
+		// nicht erforderlich
+	}
+	
+	/**
+	 * Returns the first indices of all index pairs
+	 * output so far, in the order of output.
+	 * 
+	 * @return
+	 * a new array containing the collected indices
+	 */
+	public int[] getIndices() {
+		return Arrays.copyOf(pIndices, pCount);
+	}
+	
+}
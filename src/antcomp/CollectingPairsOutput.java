@@ -0,0 +1,84 @@
+/* This Source Code Form is subject to the terms of the hermA Licence.
+ * If a copy of the licence was not distributed with this file, You have
+ * received this Source Code Form in a manner that does not comply with
+ * the terms of the licence.
+ */
+package antcomp;
+
+/**
+ * {@link IndicesOutput} implementation that collects
+ * all output index pairs in a {@link LongHashSet}.
+ * <p>
+ * A pair of the indices {@code i} and {@code j} with
+ * {@code i < j} is stored as {@code ((long) j << 32) | i},
+ * whichever of them is the first index; thus every pair is
+ * stored once, even if it is output several times or in both
+ * orders, and the ascending order of the stored values is the
+ * order used by the all-pairs comparison (by second index,
+ * then by first index).
+ * </p>
+ * <p>
+ * The mechanism for loading the indices is an implementation of
+ * {@link Output}.
+ * </p>
+ */
+public class CollectingPairsOutput implements Output, IndicesOutput {
+	
+	private final LongHashSet pPairs;
+	
+	private int pIndex1;
+	private int pIndex2;
+	
+	/**
+	 * Initializes a new instance of this class.
+	 */
+	public CollectingPairsOutput() {
+		pPairs = new LongHashSet();
+	}
+	
+	@Override
+	public void outputIndexPair() {
+		pPairs.add(encodePair(pIndex1, pIndex2));
+	}
+	
+	@Override
+	public void setFirstIndex(final int index) {
+		pIndex1 = index;
+	}
+	
+	@Override
+	public void setSecondIndex(final int index) {
+		pIndex2 = index;
+	}
+	
+	/**
+	 * Returns the {@link LongHashSet} containing the pairs
+	 * output so far (not a copy).
+	 * 
+	 * @return
+	 * the {@link LongHashSet} containing the pairs
+	 */
+	public LongHashSet getPairs() {
+		return pPairs;
+	}
+	
+	/**
+	 * Encodes a pair of indices as stored by this class.
+	 * 
+	 * @param index1
+	 * one index; at least {@code 0}
+	 * 
+	 * @param index2
+	 * the other index; at least {@code 0}
+	 * 
+	 * @return
+	 * {@code ((long) j << 32) | i}, where {@code i} is the smaller
+	 * and {@code j} the larger index
+	 */
+	public static long encodePair(final int index1, final int index2) {
+		if (index1 < index2)
+			return ((long) index2 << 32) | index1;
+		return ((long) index1 << 32) | index2;
+	}
+	
+}
@@ -0,0 +1,40 @@
+/* This Source Code Form is subject to the terms of the hermA Licence.
+ * If a copy of the licence was not distributed with this file, You have
+ * received this Source Code Form in a manner that does not comply with
+ * the terms of the licence.
+ */
+package antcomp;
+
+/**
+ * {@link Output} implementation that passes the indices
+ * on to several other {@link Output} instances.
+ */
+public class CompositeOutput implements Output {
+	
+	private final Output[] pOutputs;
+	
+	/**
+	 * Initializes a new instance of this class.
+	 * 
+	 * @param outputs
+	 * the {@link Output} instances to pass the indices on to;
+	 * not {@code null}, and the elements must not be
+	 * {@code null} either
+	 */
+	public CompositeOutput(final Output... outputs) {
+		pOutputs = outputs.clone();
+	}
+	
+	@Override
+	public void setFirstIndex(final int index) {
+		for (final Output output : pOutputs)
+			output.setFirstIndex(index);
+	}
+	
+	@Override
+	public void setSecondIndex(final int index) {
+		for (final Output output : pOutputs)
+			output.setSecondIndex(index);
+	}
+	
+}
@@ -0,0 +1,165 @@
+/* This Source Code Form is subject to the terms of the hermA Licence.
+ * If a copy of the licence was not distributed with this file, You have
+ * received this Source Code Form in a manner that does not comply with
+ * the terms of the licence.
+ */
+package antcomp;
+
+import java.util.Arrays;
+
+/**
+ * A set of {@code long} values, implemented as an open-addressing
+ * hash table with linear probing over a primitive array
+ * (avoiding the memory overhead of boxed {@link Long} instances).
+ * <p>
+ * Values cannot be removed once added. The table is kept at most
+ * half full, and its size is limited to {@code 2^30} entries, so
+ * that at most {@code 2^29} values can be added.
+ * </p>
+ */
+public class LongHashSet {
+	
+	private static final long FREE = Long.MIN_VALUE;
+	
+	private static final int MAX_TABLE_LENGTH = 1 << 30;
+	
+	private long[] pTable;
+	private int pMask;
+	private int pSize;
+	private boolean pContainsFree;
+	
+	/**
+	 * Initializes a new, empty instance of this class.
+	 */
+	public LongHashSet() {
+		pTable = new long[16];
+		Arrays.fill(pTable, FREE);
+		pMask = pTable.length - 1;
+		pSize = 0;
+		pContainsFree = false;
+	}
+	
+	/**
+	 * Adds a value to this set.
+	 * 
+	 * @param value
+	 * the value
+	 * 
+	 * @return
+	 * {@code true} if the value was not yet contained in this set
+	 * 
+	 * @throws IllegalStateException
+	 * if this set already contains the maximum number of values
+	 */
+	public boolean add(final long value) {
+		if (value == FREE) {
+			if (pContainsFree)
+				return false;
+			pContainsFree = true;
+			pSize++;
+			return true;
+		}
+		
+		final long[] table = pTable;
+		final int mask = pMask;
+		int position = hash(value) & mask;
+		while (true) {
+			final long entry = table[position];
+			if (entry == value)
+				return false;
+			if (entry == FREE)
+				break;
+			position = (position + 1) & mask;
+		}
+		// die Tabelle kann nicht weiter wachsen
+		if ((2 * (pSize + 1) > table.length) && (table.length >= MAX_TABLE_LENGTH))
+			throw new IllegalStateException("A LongHashSet can contain at most " + Integer.toString(MAX_TABLE_LENGTH / 2) + " values.");
+		table[position] = value;
+		pSize++;
+		
+		// hoechstens zur Haelfte belegt
+		if (2 * pSize > table.length)
+			grow();
+		return true;
+	}
+	
+	/**
+	 * Checks whether this set contains a value.
+	 * 
+	 * @param value
+	 * the value
+	 * 
+	 * @return
+	 * whether this set contains the value
+	 */
+	public boolean contains(final long value) {
+		if (value == FREE)
+			return pContainsFree;
+		
+		final long[] table = pTable;
+		final int mask = pMask;
+		int position = hash(value) & mask;
+		while (true) {
+			final long entry = table[position];
+			if (entry == value)
+				return true;
+			if (entry == FREE)
+				return false;
+			position = (position + 1) & mask;
+		}
+	}
+	
+	/**
+	 * Returns the number of values in this set.
+	 * 
+	 * @return
+	 * the number of values in this set
+	 */
+	public int size() {
+		return pSize;
+	}
+	
+	/**
+	 * Returns all values in this set, in ascending order.
+	 * 
+	 * @return
+	 * a new array containing all values in this set
+	 */
+	public long[] toSortedArray() {
+		final long[] result = new long[pSize];
+		int count = 0;
+		if (pContainsFree)
+			result[count++] = FREE;
+		for (final long entry : pTable)
+			if (entry != FREE)
+				result[count++] = entry;
+		Arrays.sort(result);
+		return result;
+	}
+	
+	private void grow() {
+		final long[] oldTable = pTable;
+		final long[] table = new long[2 * oldTable.length];
+		Arrays.fill(table, FREE);
+		final int mask = table.length - 1;
+		for (final long entry : oldTable) {
+			if (entry == FREE)
+				continue;
+			int position = hash(entry) & mask;
+			while (table[position] != FREE)
+				position = (position + 1) & mask;
+			table[position] = entry;
+		}
+		pTable = table;
+		pMask = mask;
+	}
+	
+	private static int hash(final long value) {
+		// Finalisierung aus MurmurHash3
+		long h = value;
+		h = (h ^ (h >>> 33)) * 0xFF51AFD7ED558CCDL;
+		h = (h ^ (h >>> 33)) * 0xC4CEB9FE1A85EC53L;
+		return (int) (h ^ (h >>> 33));
+	}
+	
+}
@@ -16,6 +16,15 @@ package antcomp;
  * {@link MetadataLine} instances (using many calls of
  * {@link #compareWith(MetadataLine)}).
  * </p>
+ * <p>
+ * As an alternative to many calls of
+ * {@link #compareWith(MetadataLine)},
+ * {@link #compareWithBatch(MetadataLine[], int, int, Output)}
+ * compares the loaded {@link MetadataLine} with a whole
+ * range of other {@link MetadataLine} instances at once,
+ * which allows implementations to process several
+ * comparisons in parallel.
+ * </p>
  */
 public interface MetadataComparer {
 	
@@ -40,4 +49,42 @@ public interface MetadataComparer {
 	 */
 	void compareWith(MetadataLine metadataLine);
 	
+	/**
+	 * Compares a range of {@link MetadataLine} instances
+	 * with the {@link MetadataLine} that was loaded by
+	 * the latest call to
+	 * {@link #load(MetadataLine)}.
+	 * <p>
+	 * The result is the same as calling
+	 * {@link Output#setFirstIndex(int)} with {@code i}
+	 * and then {@link #compareWith(MetadataLine)} with
+	 * {@code metadataLines[i]} for every {@code i}
+	 * from {@code from} (inclusive) to {@code to} (exclusive),
+	 * in ascending order; this is also what the default
+	 * implementation does.
+	 * </p>
+	 * 
+	 * @param metadataLines
+	 * an array of {@link MetadataLine} instances;
+	 * not {@code null}, and the elements in the range
+	 * must not be {@code null} either
+	 * 
+	 * @param from
+	 * the index of the first {@link MetadataLine} to compare with
+	 * 
+	 * @param to
+	 * the index after the last {@link MetadataLine} to compare with
+	 * 
+	 * @param output
+	 * the {@link Output} through which the indices of the compared
+	 * {@link MetadataLine} instances are made known to the output
+	 * of this {@link MetadataComparer}; not {@code null}
+	 */
+	default void compareWithBatch(final MetadataLine[] metadataLines, final int from, final int to, final Output output) {
+		for (int i = from; i < to; i++) {
+			output.setFirstIndex(i);
+			compareWith(metadataLines[i]);
+		}
+	}
+	
 }
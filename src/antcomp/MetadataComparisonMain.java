@@ -6,102 +6,499 @@
 package antcomp;
 
 import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.PrintStream;
 import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.FileSystem;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.LongConsumer;
 import java.util.regex.Pattern;
 import java.util.stream.Stream;
 
+import com.sun.net.httpserver.HttpServer;
+
 public class MetadataComparisonMain {
 	
 	private static final Function<? super String, String[]> SIMPLE_TITLE_SPLITTER = Pattern.compile("\\p{Z}+")::split;
 	
-	public static void main(final String[] args) {
-		if ((args.length != 3) && (args.length != 5)) {
-			printUsage();
-			System.exit(1);
-			return;
+	private static final int CROSS_BLOCK_SIZE = 512;
+	
+	private static final int DEFAULT_APPROX_BANDS = 24;
+	private static final int DEFAULT_APPROX_ROWS = 2;
+	
+	private static final int DEFAULT_SNM_WINDOW = 10;
+	
+	public static void main(final String[] commandLineArgs) {
+		final int exitStatus;
+		if ((commandLineArgs.length > 0) && commandLineArgs[0].equals("batch"))
+			exitStatus = runBatch(commandLineArgs);
+		else
+			exitStatus = run(commandLineArgs, MetadataComparisonMain::loadMetadata, System.err);
+		if (exitStatus != 0)
+			System.exit(exitStatus);
+	}
+	
+	/*
+	 * Fuehrt einen Aufruf mit den gegebenen Argumenten aus;
+	 * gibt den Exit-Status zurueck, statt System.exit aufzurufen,
+	 * und Meldungen an messages aus statt an System.err.
+	 */
+	private static int run(final String[] commandLineArgs, final MetadataLoader metadataLoader, final PrintStream messages) {
+		// Optionen von den Positionsargumenten trennen
+		final ArrayList<String> positionalArgs = new ArrayList<>();
+		int verifySampleSize = 0;
+		int bands = DEFAULT_APPROX_BANDS;
+		int rows = DEFAULT_APPROX_ROWS;
+		int maxBucketSize = MinHashIndex.UNLIMITED_BUCKET_SIZE;
+		int window = DEFAULT_SNM_WINDOW;
+		boolean sampleOption = false;
+		boolean minHashOptions = false;
+		boolean windowOption = false;
+		for (int k = 0; k < commandLineArgs.length; k++) {
+			final String arg = commandLineArgs[k];
+			final int minValue = optionMinValue(arg);
+			if ((minValue < 0) || (k + 1 >= commandLineArgs.length)) {
+				positionalArgs.add(arg);
+				continue;
+			}
+			final int value = parseOptionValue(arg, commandLineArgs[++k], minValue, messages);
+			if (value < 0)
+				return 1;
+			switch (arg) {
+				case "--verify-sample":
+					verifySampleSize = value;
+					sampleOption = true;
+					break;
+				case "--bands":
+					bands = value;
+					minHashOptions = true;
+					break;
+				case "--rows":
+					rows = value;
+					minHashOptions = true;
+					break;
+				case "--max-bucket":
+					maxBucketSize = value;
+					minHashOptions = true;
+					break;
+				default:
+					window = value;
+					windowOption = true;
+					break;
+			}
 		}
+		final String[] args = positionalArgs.toArray(new String[positionalArgs.size()]);
 		
-		final boolean raw;
-		switch (args[0]) {
-			case "raw":
-				raw = true;
-				break;
-			case "decide":
-				raw = false;
-				break;
-			default:
-				System.err.println("unknown mode, must be \"raw\" or \"decide\"");
-				System.exit(1);
-				return;
+		if (args.length == 0) {
+			printUsage(messages);
+			return 1;
 		}
 		
-		final long authorThreshold;
-		final long titleThreshold;
-		if (args.length > 3) {
-			authorThreshold = parseThreshold(args[3]);
-			titleThreshold = parseThreshold(args[4]);
-			if ((authorThreshold < 0L) || (titleThreshold < 0L)) {
-				System.exit(1);
-				return;
+		final String mode = args[0];
+		final int inputFileCount = inputFileCount(mode);
+		if (inputFileCount < 0) {
+			messages.println("unknown mode, must be one of \"raw\", \"decide\", \"decide-title-index\", \"decide-author-index\", \"clusters\", \"clusters-spanning\", \"approx\", \"snm\", \"sweep\", \"serve\", \"cross-raw\", \"cross-decide\" and \"batch\"");
+			return 1;
+		}
+		if (minHashOptions && !mode.equals("approx")) {
+			messages.println("--bands, --rows and --max-bucket are only supported in mode \"approx\"");
+			return 1;
+		}
+		if (windowOption && !mode.equals("snm")) {
+			messages.println("--window is only supported in mode \"snm\"");
+			return 1;
+		}
+		if (sampleOption && !mode.equals("approx") && !mode.equals("snm")) {
+			messages.println("--verify-sample is only supported in modes \"approx\" and \"snm\"");
+			return 1;
+		}
+		final boolean serve = mode.equals("serve");
+		final boolean sweep = mode.equals("sweep");
+		final boolean cross = (inputFileCount == 2);
+		
+		// Modus, Eingabedatei(en), Ausgabedatei bzw. Port;
+		// im Modus "sweep" beliebig viele Schwellwertpaare
+		final int thresholdsIndex = inputFileCount + 2;
+		final int thresholdArgCount = args.length - thresholdsIndex;
+		if (sweep ? ((thresholdArgCount < 2) || (thresholdArgCount % 2 != 0)) : ((thresholdArgCount != 0) && (thresholdArgCount != 2))) {
+			printUsage(messages);
+			return 1;
+		}
+		
+		final int thresholdPairCount = Math.max(1, thresholdArgCount / 2);
+		final long[] authorThresholds = new long[thresholdPairCount];
+		final long[] titleThresholds = new long[thresholdPairCount];
+		if (thresholdArgCount > 0) {
+			for (int k = 0; k < thresholdPairCount; k++) {
+				authorThresholds[k] = parseThreshold(args[thresholdsIndex + 2 * k], messages);
+				titleThresholds[k] = parseThreshold(args[thresholdsIndex + 2 * k + 1], messages);
+				if ((authorThresholds[k] < 0L) || (titleThresholds[k] < 0L))
+					return 1;
+				for (int l = 0; l < k; l++) {
+					if ((authorThresholds[l] == authorThresholds[k]) && (titleThresholds[l] == titleThresholds[k])) {
+						messages.println("duplicate thresholds: " + Long.toString(authorThresholds[k]) + " " + Long.toString(titleThresholds[k]));
+						return 1;
+					}
+				}
 			}
 		} else {
-			authorThreshold = 2L;
-			titleThreshold = 2L;
+			authorThresholds[0] = 2L;
+			titleThresholds[0] = 2L;
+		}
+		final long authorThreshold = authorThresholds[0];
+		final long titleThreshold = titleThresholds[0];
+		
+		final int port;
+		if (serve) {
+			port = parsePort(args[2], messages);
+			if (port < 0)
+				return 1;
+		} else {
+			port = -1;
 		}
 		
 		final FileSystem fs = FileSystems.getDefault();
 		
 		final Path metadataFile = makePath(fs, args[1]);
-		final Path outputFile = makePath(fs, args[2]);
+		final Path otherMetadataFile = cross ? makePath(fs, args[2]) : null;
 		
 		final ArrayList<MetadataLine> metadata;
+		final ArrayList<MetadataLine> otherMetadata;
 		try {
-			metadata = loadMetadata(metadataFile);
+			metadata = metadataLoader.load(metadataFile);
+			otherMetadata = cross ? metadataLoader.load(otherMetadataFile) : null;
 		} catch (final IOException e) {
 			throw new UncheckedIOException(e);
 		}
 		
+		if (serve) {
+			serve(metadata, port, authorThreshold, titleThreshold, messages);
+			return 0;
+		}
+		
+		final Path outputFile = makePath(fs, args[thresholdsIndex - 1]);
+		
+		if (sweep) {
+			try {
+				compareAllPairsSweep(metadata, outputFile, authorThresholds, titleThresholds);
+			} catch (final IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			return 0;
+		}
+		
 		try (final BufferedWriter writer = Files.newBufferedWriter(outputFile, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
-			if (raw)
-				compareAllPairsRaw(metadata, writer);
-			else
-				compareAllPairsDecide(metadata, writer, authorThreshold, titleThreshold);
+			switch (mode) {
+				case "raw":
+					compareAllPairsRaw(metadata, writer);
+					break;
+				case "decide":
+					compareAllPairsDecide(metadata, writer, authorThreshold, titleThreshold);
+					break;
+				case "decide-title-index":
+					compareTitleIndexPairsDecide(metadata, writer, authorThreshold, titleThreshold);
+					break;
+				case "decide-author-index":
+					compareAuthorIndexPairsDecide(metadata, writer, authorThreshold, titleThreshold);
+					break;
+				case "clusters":
+					compareAllPairsClusters(metadata, writer, authorThreshold, titleThreshold, false);
+					break;
+				case "clusters-spanning":
+					compareAllPairsClusters(metadata, writer, authorThreshold, titleThreshold, true);
+					break;
+				case "approx":
+					compareApproximatePairsDecide(metadata, writer, authorThreshold, titleThreshold, bands, rows, maxBucketSize, verifySampleSize, messages);
+					break;
+				case "snm":
+					compareSortedNeighbourhoodPairsDecide(metadata, writer, authorThreshold, titleThreshold, window, verifySampleSize, messages);
+					break;
+				case "cross-raw":
+					compareCrossPairsRaw(metadata, otherMetadata, writer);
+					break;
+				case "cross-decide":
+					compareCrossPairsDecide(metadata, otherMetadata, writer, authorThreshold, titleThreshold);
+					break;
+				default:
+					throw new IllegalStateException(mode);
+			}
 			writer.flush();
 		} catch (final IOException e) {
 			throw new UncheckedIOException(e);
 		}
+		return 0;
+	}
+	
+	private static int runBatch(final String[] commandLineArgs) {
+		if ((commandLineArgs.length != 2) && (commandLineArgs.length != 3)) {
+			printUsage(System.err);
+			return 1;
+		}
+		final int threadCount;
+		if (commandLineArgs.length > 2) {
+			threadCount = parseOptionValue("number of threads", commandLineArgs[2], 1, System.err);
+			if (threadCount < 0)
+				return 1;
+		} else {
+			threadCount = Runtime.getRuntime().availableProcessors();
+		}
+		
+		final FileSystem fs = FileSystems.getDefault();
+		final List<String> lines;
+		try {
+			lines = Files.readAllLines(makePath(fs, commandLineArgs[1]), StandardCharsets.UTF_8);
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		
+		// je Zeile die Argumente eines Aufrufs, durch Tabulatoren getrennt;
+		// ungueltige Zeilen werden als fehlgeschlagene Auftraege gemeldet
+		final ArrayList<String[]> jobs = new ArrayList<>();
+		final ArrayList<Integer> jobLineNumbers = new ArrayList<>();
+		final ArrayList<String> jobErrors = new ArrayList<>();
+		final ArrayList<List<Path>> jobInputFiles = new ArrayList<>();
+		final HashMap<Path, Integer> loadCounts = new HashMap<>();
+		for (int l = 0; l < lines.size(); l++) {
+			final String line = lines.get(l);
+			if (line.isEmpty() || line.startsWith("#"))
+				continue;
+			final String[] jobArgs = line.split("\t");
+			final String[] positionalArgs = positionalArgs(jobArgs);
+			final String mode = (positionalArgs.length > 0) ? positionalArgs[0] : "";
+			final int inputFileCount = inputFileCount(mode);
+			final ArrayList<Path> inputFiles = new ArrayList<>();
+			String error = null;
+			if (positionalArgs.length == 0) {
+				error = "missing mode";
+			} else if (mode.equals("serve") || mode.equals("batch")) {
+				error = "mode \"" + mode + "\" is not allowed in a batch";
+			} else if (inputFileCount < 0) {
+				error = "unknown mode \"" + mode + "\"";
+			} else {
+				try {
+					for (int k = 1; (k <= inputFileCount) && (k < positionalArgs.length); k++)
+						inputFiles.add(makePath(fs, positionalArgs[k]));
+				} catch (final InvalidPathException e) {
+					error = e.toString();
+					inputFiles.clear();
+				}
+			}
+			for (final Path inputFile : inputFiles)
+				loadCounts.merge(inputFile, Integer.valueOf(1), Integer::sum);
+			jobs.add(jobArgs);
+			jobLineNumbers.add(Integer.valueOf(l + 1));
+			jobErrors.add(error);
+			jobInputFiles.add(inputFiles);
+		}
+		
+		final int jobCount = jobs.size();
+		final SharedMetadataLoader metadataLoader = new SharedMetadataLoader(loadCounts);
+		final long[] jobNanos = new long[jobCount];
+		// Meldungen parallel laufender Auftraege erst in der Zusammenfassung ausgeben
+		final ByteArrayOutputStream[] jobMessages = new ByteArrayOutputStream[jobCount];
+		for (int k = 0; k < jobCount; k++)
+			jobMessages[k] = new ByteArrayOutputStream();
+		final ArrayList<Future<Integer>> futures = new ArrayList<>(jobCount);
+		final long start = System.nanoTime();
+		final ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+		for (int k = 0; k < jobCount; k++) {
+			final int job = k;
+			futures.add(executor.submit(() -> {
+				final long jobStart = System.nanoTime();
+				try {
+					if (jobErrors.get(job) != null)
+						throw new IllegalArgumentException(jobErrors.get(job));
+					return Integer.valueOf(run(jobs.get(job), metadataLoader, new PrintStream(jobMessages[job], true)));
+				} finally {
+					// auch fuer Auftraege, die ihre Eingabedateien nie geladen haben
+					metadataLoader.release(jobInputFiles.get(job));
+					jobNanos[job] = System.nanoTime() - jobStart;
+				}
+			}));
+		}
+		executor.shutdown();
+		
+		// Zusammenfassung in der Reihenfolge des Manifests
+		int failedCount = 0;
+		for (int k = 0; k < jobCount; k++) {
+			String result;
+			try {
+				result = (futures.get(k).get().intValue() == 0) ? "ok" : "failed (invalid arguments)";
+			} catch (final ExecutionException e) {
+				result = "failed (" + e.getCause() + ")";
+			} catch (final InterruptedException e) {
+				executor.shutdownNow();
+				Thread.currentThread().interrupt();
+				return 1;
+			}
+			if (!result.equals("ok"))
+				failedCount++;
+			final String lineNumber = jobLineNumbers.get(k).toString();
+			System.err.println("line " + lineNumber + "\t" + result + "\t" + String.format(Locale.ROOT, "%.3f", jobNanos[k] / 1e9) + " s\t" + String.join(" ", jobs.get(k)));
+			for (final String message : jobMessages[k].toString().split("\\R"))
+				if (!message.isEmpty())
+					System.err.println("line " + lineNumber + ": " + message);
+		}
+		System.err.println(Integer.toString(jobCount) + " jobs, " + Integer.toString(failedCount) + " failed, " + String.format(Locale.ROOT, "%.3f", (System.nanoTime() - start) / 1e9) + " s in total with " + Integer.toString(threadCount) + " threads");
+		return (failedCount == 0) ? 0 : 1;
+	}
+	
+	private static int inputFileCount(final String mode) {
+		switch (mode) {
+			case "raw":
+			case "decide":
+			case "decide-title-index":
+			case "decide-author-index":
+			case "clusters":
+			case "clusters-spanning":
+			case "approx":
+			case "snm":
+			case "sweep":
+			case "serve":
+				return 1;
+			case "cross-raw":
+			case "cross-decide":
+				return 2;
+			default:
+				return -1;
+		}
 	}
 	
-	private static void printUsage() {
-		System.err.println("expecting three or five arguments:");
-		System.err.println("mode (\"raw\" or \"decide\")");
-		System.err.println("metadata input file");
-		System.err.println("output file name");
-		System.err.println();
-		System.err.println("optional (ignored if mode is \"raw\"):");
-		System.err.println("author threshold (default: 2)");
-		System.err.println("title threshold (default: 2)");
+	/*
+	 * Liefert fuer Optionen mit Wert den kleinsten erlaubten Wert,
+	 * sonst -1.
+	 */
+	private static int optionMinValue(final String arg) {
+		switch (arg) {
+			case "--verify-sample":
+				return 0;
+			case "--bands":
+			case "--rows":
+				return 1;
+			case "--max-bucket":
+			case "--window":
+				return 2;
+			default:
+				return -1;
+		}
+	}
+	
+	/*
+	 * Trennt die Positionsargumente wie run von den Optionen,
+	 * ohne die Werte der Optionen zu pruefen.
+	 */
+	private static String[] positionalArgs(final String[] commandLineArgs) {
+		final ArrayList<String> positionalArgs = new ArrayList<>();
+		for (int k = 0; k < commandLineArgs.length; k++) {
+			final String arg = commandLineArgs[k];
+			if ((optionMinValue(arg) < 0) || (k + 1 >= commandLineArgs.length))
+				positionalArgs.add(arg);
+			else
+				k++;
+		}
+		return positionalArgs.toArray(new String[positionalArgs.size()]);
 	}
 	
-	private static long parseThreshold(final String thresholdString) {
+	private static void printUsage(final PrintStream messages) {
+		messages.println("expecting three or five arguments:");
+		messages.println("mode (\"raw\", \"decide\", \"decide-title-index\", \"decide-author-index\", \"clusters\", \"clusters-spanning\", \"approx\", \"snm\" or \"serve\")");
+		messages.println("metadata input file");
+		messages.println("output file name (port number if mode is \"serve\")");
+		messages.println();
+		messages.println("or, if mode is \"sweep\", five or more arguments:");
+		messages.println("mode");
+		messages.println("metadata input file");
+		messages.println("output file name (the thresholds are inserted before the extension)");
+		messages.println("one or more pairs of author threshold and title threshold");
+		messages.println();
+		messages.println("or, if mode is \"batch\", two or three arguments:");
+		messages.println("mode");
+		messages.println("manifest file (one job per line, with the arguments separated by tabulator characters)");
+		messages.println("number of threads (default: number of processors)");
+		messages.println();
+		messages.println("or, if mode is \"cross-raw\" or \"cross-decide\", four or six arguments:");
+		messages.println("mode");
+		messages.println("first metadata input file");
+		messages.println("second metadata input file");
+		messages.println("output file name");
+		messages.println();
+		messages.println("optional (ignored if mode is \"raw\" or \"cross-raw\"):");
+		messages.println("author threshold (default: 2)");
+		messages.println("title threshold (default: 2)");
+		messages.println();
+		messages.println("options (only if mode is \"approx\"):");
+		messages.println("--bands <number> (default: " + Integer.toString(DEFAULT_APPROX_BANDS) + ")");
+		messages.println("--rows <number> (default: " + Integer.toString(DEFAULT_APPROX_ROWS) + ")");
+		messages.println("--max-bucket <number of works> (default: no limit)");
+		messages.println("option (only if mode is \"snm\"):");
+		messages.println("--window <number of works> (default: " + Integer.toString(DEFAULT_SNM_WINDOW) + ")");
+		messages.println("option (only if mode is \"approx\" or \"snm\"):");
+		messages.println("--verify-sample <number of works> to estimate the recall on a random sample");
+	}
+	
+	private static long parseThreshold(final String thresholdString, final PrintStream messages) {
 		final long result;
 		try {
 			result = Long.parseLong(thresholdString);
 		} catch (final NumberFormatException e) {
-			System.err.println("Threshold string is not a valid number (or out of range): " + thresholdString);
+			messages.println("Threshold string is not a valid number (or out of range): " + thresholdString);
 			return -1;
 		}
 		if (result < 0L)
-			System.err.println(thresholdString + " is not a valid threshold. Thresholds must be >= 0.");
+			messages.println(thresholdString + " is not a valid threshold. Thresholds must be >= 0.");
+		return result;
+	}
+	
+	private static int parseOptionValue(final String option, final String valueString, final int minValue, final PrintStream messages) {
+		final int result;
+		try {
+			result = Integer.parseInt(valueString);
+		} catch (final NumberFormatException e) {
+			messages.println("Value of " + option + " is not a valid number (or out of range): " + valueString);
+			return -1;
+		}
+		if (result < minValue) {
+			messages.println(valueString + " is not a valid value for " + option + ". Values must be >= " + Integer.toString(minValue) + ".");
+			return -1;
+		}
+		return result;
+	}
+	
+	private static int parsePort(final String portString, final PrintStream messages) {
+		final int result;
+		try {
+			result = Integer.parseInt(portString);
+		} catch (final NumberFormatException e) {
+			messages.println("Port is not a valid number (or out of range): " + portString);
+			return -1;
+		}
+		if ((result < 0) || (result > 65535)) {
+			messages.println(portString + " is not a valid port number. Port numbers must be between 0 and 65535.");
+			return -1;
+		}
 		return result;
 	}
 	
@@ -115,6 +512,17 @@ public class MetadataComparisonMain {
 		}
 	}
 	
+	private static void serve(final ArrayList<MetadataLine> metadata, final int port, final long authorThreshold, final long titleThreshold, final PrintStream messages) {
+		final MetadataQueryServer server = new MetadataQueryServer(metadata.toArray(new MetadataLine[metadata.size()]), SIMPLE_TITLE_SPLITTER, authorThreshold, titleThreshold);
+		final HttpServer httpServer;
+		try {
+			httpServer = server.start(port, Runtime.getRuntime().availableProcessors());
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		messages.println("answering queries for " + Integer.toString(metadata.size()) + " works at http://localhost:" + Integer.toString(httpServer.getAddress().getPort()) + "/query");
+	}
+	
 	private static void compareAllPairsRaw(final ArrayList<MetadataLine> metadata, final Appendable appendable) throws IOException {
 		final ToAppenableDistancesOutput output = new ToAppenableDistancesOutput(appendable);
 		compareAllPairs(metadata, new OutputDistancesMetadataComparer(SIMPLE_TITLE_SPLITTER, output), output);
@@ -129,16 +537,287 @@ public class MetadataComparisonMain {
 		compareAllPairs(metadata, new OutputPairsForFullTextComparisonMetadataComparer(SIMPLE_TITLE_SPLITTER, authorThreshold, titleThreshold, output2), output2);
 	}
 	
-	private static void compareAllPairs(final ArrayList<MetadataLine> metadata, final MetadataComparer metadataComparer, final Output output) {
+	private static void compareAllPairsSweep(final ArrayList<MetadataLine> metadata, final Path outputFile, final long[] authorThresholds, final long[] titleThresholds) throws IOException {
+		final int count = authorThresholds.length;
+		final BufferedWriter[] writers = new BufferedWriter[count];
+		try {
+			final ToAppendableFulltextComparisonPlanOutput[] outputs = new ToAppendableFulltextComparisonPlanOutput[count];
+			for (int k = 0; k < count; k++) {
+				writers[k] = Files.newBufferedWriter(makeSweepOutputFile(outputFile, authorThresholds[k], titleThresholds[k]), StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+				for (final MetadataLine metadataLine : metadata)
+					writers[k].append(metadataLine.getFilename()).append('\n');
+				writers[k].append('\n');
+				outputs[k] = new ToAppendableFulltextComparisonPlanOutput(writers[k]);
+			}
+			
+			compareAllPairs(metadata, new MultiThresholdMetadataComparer(SIMPLE_TITLE_SPLITTER, authorThresholds, titleThresholds, outputs), new CompositeOutput(outputs));
+			for (final BufferedWriter writer : writers)
+				writer.flush();
+		} finally {
+			for (final BufferedWriter writer : writers)
+				if (writer != null)
+					writer.close();
+		}
+	}
+	
+	private static Path makeSweepOutputFile(final Path outputFile, final long authorThreshold, final long titleThreshold) {
+		// z. B. plan.txt -> plan-a2-t3.txt
+		final String fileName = outputFile.getFileName().toString();
+		final String suffix = "-a" + Long.toString(authorThreshold) + "-t" + Long.toString(titleThreshold);
+		final int extensionStart = fileName.lastIndexOf('.');
+		if (extensionStart <= 0)
+			return outputFile.resolveSibling(fileName + suffix);
+		return outputFile.resolveSibling(fileName.substring(0, extensionStart) + suffix + fileName.substring(extensionStart));
+	}
+	
+	private static void compareTitleIndexPairsDecide(final ArrayList<MetadataLine> metadata, final Appendable appendable, final long authorThreshold, final long titleThreshold) throws IOException {
+		for (final MetadataLine metadataLine : metadata)
+			appendable.append(metadataLine.getFilename()).append('\n');
+		appendable.append('\n');
+		
+		final ToAppendableFulltextComparisonPlanOutput output2 = new ToAppendableFulltextComparisonPlanOutput(appendable);
+		final TitleWordIndex titleWordIndex = new TitleWordIndex(metadata, SIMPLE_TITLE_SPLITTER, titleThreshold);
+		compareIndexedPairs(metadata, titleWordIndex, new OutputPairsForFullTextComparisonMetadataComparer(SIMPLE_TITLE_SPLITTER, authorThreshold, titleThreshold, output2), output2);
+	}
+	
+	private static void compareAllPairsClusters(final ArrayList<MetadataLine> metadata, final Appendable appendable, final long authorThreshold, final long titleThreshold, final boolean spanningPairs) throws IOException {
+		for (final MetadataLine metadataLine : metadata)
+			appendable.append(metadataLine.getFilename()).append('\n');
+		appendable.append('\n');
+		
 		final int n = metadata.size();
+		final UnionFindIndicesOutput output = new UnionFindIndicesOutput(n);
+		final MetadataComparer metadataComparer = new OutputPairsForFullTextComparisonMetadataComparer(SIMPLE_TITLE_SPLITTER, authorThreshold, titleThreshold, output);
+		final MetadataLine[] metadataLines = metadata.toArray(new MetadataLine[n]);
 		for (int j = 1; j < n; j++) {
 			output.setSecondIndex(j);
-			metadataComparer.load(metadata.get(j));
+			metadataComparer.load(metadataLines[j]);
 			for (int i = 0; i < j; i++) {
+				// Paare innerhalb eines Clusters aendern nichts mehr
+				if (output.connected(i, j))
+					continue;
 				output.setFirstIndex(i);
+				metadataComparer.compareWith(metadataLines[i]);
+			}
+		}
+		
+		if (spanningPairs) {
+			for (final int[] pairs : output.getSpanningPairs())
+				for (int k = 0; k < pairs.length; k += 2)
+					appendable.append(Integer.toString(pairs[k])).append('\t').append(Integer.toString(pairs[k + 1])).append('\n');
+		} else {
+			for (final int[] cluster : output.getClusters()) {
+				appendable.append(Integer.toString(cluster[0]));
+				for (int k = 1; k < cluster.length; k++)
+					appendable.append('\t').append(Integer.toString(cluster[k]));
+				appendable.append('\n');
+			}
+		}
+	}
+	
+	private static void compareApproximatePairsDecide(final ArrayList<MetadataLine> metadata, final Appendable appendable, final long authorThreshold, final long titleThreshold, final int bands, final int rows, final int maxBucketSize, final int verifySampleSize, final PrintStream messages) throws IOException {
+		for (final MetadataLine metadataLine : metadata)
+			appendable.append(metadataLine.getFilename()).append('\n');
+		appendable.append('\n');
+		
+		final MinHashIndex minHashIndex = new MinHashIndex(metadata, bands, rows, maxBucketSize);
+		final LongHashSet foundPairs = compareCandidatePairs(metadata, minHashIndex::forEachCandidatePair, appendable, authorThreshold, titleThreshold);
+		
+		if (verifySampleSize > 0)
+			estimateRecall(metadata, foundPairs, verifySampleSize, authorThreshold, titleThreshold, messages);
+	}
+	
+	private static void compareSortedNeighbourhoodPairsDecide(final ArrayList<MetadataLine> metadata, final Appendable appendable, final long authorThreshold, final long titleThreshold, final int window, final int verifySampleSize, final PrintStream messages) throws IOException {
+		for (final MetadataLine metadataLine : metadata)
+			appendable.append(metadataLine.getFilename()).append('\n');
+		appendable.append('\n');
+		
+		final SortedNeighbourhoodIndex sortedNeighbourhoodIndex = new SortedNeighbourhoodIndex(metadata, SIMPLE_TITLE_SPLITTER);
+		final LongHashSet foundPairs = compareCandidatePairs(metadata, consumer -> sortedNeighbourhoodIndex.forEachCandidatePair(consumer, window), appendable, authorThreshold, titleThreshold);
+		
+		if (verifySampleSize > 0)
+			estimateRecall(metadata, foundPairs, verifySampleSize, authorThreshold, titleThreshold, messages);
+	}
+	
+	private static LongHashSet compareCandidatePairs(final ArrayList<MetadataLine> metadata, final Consumer<LongConsumer> candidatePairs, final Appendable appendable, final long authorThreshold, final long titleThreshold) {
+		// nur die gefundenen Paare sammeln, nicht alle Kandidaten
+		final CollectingPairsOutput output = new CollectingPairsOutput();
+		final LongHashSet foundPairs = output.getPairs();
+		final MetadataComparer metadataComparer = new OutputPairsForFullTextComparisonMetadataComparer(SIMPLE_TITLE_SPLITTER, authorThreshold, titleThreshold, output);
+		final int[] loaded = new int[] { -1 };
+		candidatePairs.accept(pair -> {
+			// Kandidaten koennen mehrfach vorkommen
+			if (foundPairs.contains(pair))
+				return;
+			final int j = (int) (pair >>> 32);
+			final int i = (int) (pair & 0xFFFFFFFFL);
+			// der Vergleich ist symmetrisch, also ggf. den geladenen Eintrag weiterverwenden
+			final int other;
+			if (j == loaded[0]) {
+				other = i;
+			} else if (i == loaded[0]) {
+				other = j;
+			} else {
+				output.setSecondIndex(j);
+				metadataComparer.load(metadata.get(j));
+				loaded[0] = j;
+				other = i;
+			}
+			output.setFirstIndex(other);
+			metadataComparer.compareWith(metadata.get(other));
+		});
+		
+		// in der Reihenfolge des Vergleichs aller Paare ausgeben
+		final ToAppendableFulltextComparisonPlanOutput output2 = new ToAppendableFulltextComparisonPlanOutput(appendable);
+		for (final long pair : foundPairs.toSortedArray()) {
+			output2.setFirstIndex((int) (pair & 0xFFFFFFFFL));
+			output2.setSecondIndex((int) (pair >>> 32));
+			output2.outputIndexPair();
+		}
+		return foundPairs;
+	}
+	
+	private static void estimateRecall(final ArrayList<MetadataLine> metadata, final LongHashSet foundPairs, final int sampleSize, final long authorThreshold, final long titleThreshold, final PrintStream messages) {
+		// Stichprobe ohne Zuruecklegen (mit festem Startwert, um reproduzierbar zu sein)
+		final int n = metadata.size();
+		final int[] indices = new int[n];
+		for (int i = 0; i < n; i++)
+			indices[i] = i;
+		final int size = Math.min(sampleSize, n);
+		final Random random = new Random(0L);
+		for (int k = 0; k < size; k++) {
+			final int other = k + random.nextInt(n - k);
+			final int index = indices[other];
+			indices[other] = indices[k];
+			indices[k] = index;
+		}
+		final int[] sample = Arrays.copyOf(indices, size);
+		Arrays.sort(sample);
+		final boolean[] inSample = new boolean[n];
+		for (final int index : sample)
+			inSample[index] = true;
+		
+		// jeden Eintrag der Stichprobe mit allen Eintraegen vergleichen
+		final long[] counts = new long[2];
+		final int[] pair = new int[2];
+		final IndicesOutput output = () -> {
+			counts[0]++;
+			if (foundPairs.contains(CollectingPairsOutput.encodePair(pair[0], pair[1])))
+				counts[1]++;
+		};
+		final MetadataComparer metadataComparer = new OutputPairsForFullTextComparisonMetadataComparer(SIMPLE_TITLE_SPLITTER, authorThreshold, titleThreshold, output);
+		for (final int index : sample) {
+			pair[1] = index;
+			metadataComparer.load(metadata.get(index));
+			for (int i = 0; i < n; i++) {
+				// Paare innerhalb der Stichprobe nur einmal zaehlen
+				if ((i == index) || (inSample[i] && (i > index)))
+					continue;
+				pair[0] = i;
 				metadataComparer.compareWith(metadata.get(i));
 			}
 		}
+		
+		if (counts[0] == 0L) {
+			messages.println("recall estimate: no pairs within the thresholds involving " + Integer.toString(size) + " sampled works; use a larger sample");
+			return;
+		}
+		messages.println("recall estimate: " + Long.toString(counts[1]) + " of " + Long.toString(counts[0]) + " pairs within the thresholds involving " + Integer.toString(size) + " sampled works were found (" + String.format(Locale.ROOT, "%.2f", 100.0 * counts[1] / counts[0]) + " %)");
+	}
+	
+	private static void compareAuthorIndexPairsDecide(final ArrayList<MetadataLine> metadata, final Appendable appendable, final long authorThreshold, final long titleThreshold) throws IOException {
+		for (final MetadataLine metadataLine : metadata)
+			appendable.append(metadataLine.getFilename()).append('\n');
+		appendable.append('\n');
+		
+		final ToAppendableFulltextComparisonPlanOutput output2 = new ToAppendableFulltextComparisonPlanOutput(appendable);
+		final AuthorTrie authorTrie = new AuthorTrie(metadata);
+		// jeden Autorennamen nur einmal suchen (bei vielen Werken desselben Autors)
+		final HashMap<String, int[]> candidatesByAuthor = new HashMap<>();
+		final CandidateIndex candidateIndex = (index, result) -> {
+			final int[] candidates = candidatesByAuthor.computeIfAbsent(metadata.get(index).getAuthor(), author -> authorTrie.query(author, authorThreshold));
+			// aufsteigend sortiert, also bis zum ersten Index >= index
+			final int position = Arrays.binarySearch(candidates, index);
+			final int count = (position < 0) ? -position - 1 : position;
+			System.arraycopy(candidates, 0, result, 0, count);
+			return count;
+		};
+		compareIndexedPairs(metadata, candidateIndex, new OutputPairsForFullTextComparisonMetadataComparer(SIMPLE_TITLE_SPLITTER, authorThreshold, titleThreshold, output2), output2);
+	}
+	
+	private static void compareIndexedPairs(final ArrayList<MetadataLine> metadata, final CandidateIndex candidateIndex, final MetadataComparer metadataComparer, final Output output) {
+		final int n = metadata.size();
+		final MetadataLine[] metadataLines = metadata.toArray(new MetadataLine[n]);
+		final int[] candidates = new int[n];
+		for (int j = 1; j < n; j++) {
+			output.setSecondIndex(j);
+			metadataComparer.load(metadataLines[j]);
+			final int count = candidateIndex.candidatesBefore(j, candidates);
+			if (count < 0) {
+				metadataComparer.compareWithBatch(metadataLines, 0, j, output);
+				continue;
+			}
+			for (int k = 0; k < count; k++) {
+				final int i = candidates[k];
+				output.setFirstIndex(i);
+				metadataComparer.compareWith(metadataLines[i]);
+			}
+		}
+	}
+	
+	private static void compareAllPairs(final ArrayList<MetadataLine> metadata, final MetadataComparer metadataComparer, final Output output) {
+		final int n = metadata.size();
+		final MetadataLine[] metadataLines = metadata.toArray(new MetadataLine[n]);
+		for (int j = 1; j < n; j++) {
+			output.setSecondIndex(j);
+			metadataComparer.load(metadataLines[j]);
+			metadataComparer.compareWithBatch(metadataLines, 0, j, output);
+		}
+	}
+	
+	private static void compareCrossPairsRaw(final ArrayList<MetadataLine> metadata1, final ArrayList<MetadataLine> metadata2, final Appendable appendable) throws IOException {
+		final ToAppenableDistancesOutput output = new ToAppenableDistancesOutput(appendable);
+		compareCrossPairs(metadata1, metadata2, new OutputDistancesMetadataComparer(makeCrossTitleSplitter(metadata1, metadata2), output), output);
+	}
+	
+	private static void compareCrossPairsDecide(final ArrayList<MetadataLine> metadata1, final ArrayList<MetadataLine> metadata2, final Appendable appendable, final long authorThreshold, final long titleThreshold) throws IOException {
+		for (final MetadataLine metadataLine : metadata1)
+			appendable.append(metadataLine.getFilename()).append('\n');
+		appendable.append('\n');
+		for (final MetadataLine metadataLine : metadata2)
+			appendable.append(metadataLine.getFilename()).append('\n');
+		appendable.append('\n');
+		
+		final ToAppendableFulltextComparisonPlanOutput output2 = new ToAppendableFulltextComparisonPlanOutput(appendable);
+		compareCrossPairs(metadata1, metadata2, new OutputPairsForFullTextComparisonMetadataComparer(makeCrossTitleSplitter(metadata1, metadata2), authorThreshold, titleThreshold, output2), output2);
+	}
+	
+	private static Function<? super String, String[]> makeCrossTitleSplitter(final ArrayList<MetadataLine> metadata1, final ArrayList<MetadataLine> metadata2) {
+		// jeden Titel nur einmal zerlegen, nicht bei jedem Vergleich bzw. in jedem Block
+		final ArrayList<MetadataLine> metadata = new ArrayList<>(metadata1.size() + metadata2.size());
+		metadata.addAll(metadata1);
+		metadata.addAll(metadata2);
+		return new PreSplitTitleSplitter(SIMPLE_TITLE_SPLITTER, metadata);
+	}
+	
+	private static void compareCrossPairs(final ArrayList<MetadataLine> metadata1, final ArrayList<MetadataLine> metadata2, final MetadataComparer metadataComparer, final Output output) {
+		// die kleinere Seite (samt ihren zerlegten Titeln) blockweise
+		// im Cache halten, die groessere durchlaufen
+		final boolean firstResident = metadata1.size() <= metadata2.size();
+		final MetadataLine[] resident = (firstResident ? metadata1 : metadata2).toArray(new MetadataLine[0]);
+		final MetadataLine[] streamed = (firstResident ? metadata2 : metadata1).toArray(new MetadataLine[0]);
+		final Output residentFirstOutput = firstResident ? output : new SwappingOutput(output);
+		
+		final int m = resident.length;
+		final int n = streamed.length;
+		for (int blockStart = 0; blockStart < m; blockStart += CROSS_BLOCK_SIZE) {
+			final int blockEnd = Math.min(m, blockStart + CROSS_BLOCK_SIZE);
+			for (int j = 0; j < n; j++) {
+				residentFirstOutput.setSecondIndex(j);
+				metadataComparer.load(streamed[j]);
+				metadataComparer.compareWithBatch(resident, blockStart, blockEnd, residentFirstOutput);
+			}
+		}
 	}
 	
 	private static MetadataLine parseLine(final String line) {
@@ -155,4 +834,65 @@ public class MetadataComparisonMain {
 		throw new IllegalArgumentException("line has wrong format: " + line);
 	}
 	
+	@FunctionalInterface
+	private interface MetadataLoader {
+		
+		ArrayList<MetadataLine> load(Path metadataFile) throws IOException;
+	
+	}
+	
+	/*
+	 * Laedt Eingabedateien, die von mehreren Auftraegen eines Batch-Laufs
+	 * gelesen werden, nur einmal (die Listen werden nicht veraendert);
+	 * vergisst sie, sobald alle Auftraege, die sie lesen, sie freigegeben
+	 * haben (auch fehlgeschlagene).
+	 */
+	private static final class SharedMetadataLoader implements MetadataLoader {
+		
+		private final ConcurrentHashMap<Path, AtomicInteger> pRemainingJobs;
+		private final ConcurrentHashMap<Path, FutureTask<ArrayList<MetadataLine>>> pLoads;
+		
+		public SharedMetadataLoader(final Map<Path, Integer> loadCounts) {
+			pRemainingJobs = new ConcurrentHashMap<>();
+			for (final Map.Entry<Path, Integer> entry : loadCounts.entrySet())
+				if (entry.getValue().intValue() > 1)
+					pRemainingJobs.put(entry.getKey(), new AtomicInteger(entry.getValue().intValue()));
+			pLoads = new ConcurrentHashMap<>();
+		}
+		
+		public void release(final List<Path> metadataFiles) {
+			for (final Path metadataFile : metadataFiles) {
+				final AtomicInteger remainingJobs = pRemainingJobs.get(metadataFile);
+				if ((remainingJobs != null) && (remainingJobs.decrementAndGet() <= 0))
+					pLoads.remove(metadataFile);
+			}
+		}
+		
+		@Override
+		public ArrayList<MetadataLine> load(final Path metadataFile) throws IOException {
+			if (!pRemainingJobs.containsKey(metadataFile))
+				return loadMetadata(metadataFile);
+			
+			final FutureTask<ArrayList<MetadataLine>> newLoad = new FutureTask<>(() -> loadMetadata(metadataFile));
+			final FutureTask<ArrayList<MetadataLine>> existingLoad = pLoads.putIfAbsent(metadataFile, newLoad);
+			final FutureTask<ArrayList<MetadataLine>> load = (existingLoad == null) ? newLoad : existingLoad;
+			load.run();
+			
+			try {
+				return load.get();
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException();
+			} catch (final ExecutionException e) {
+				final Throwable cause = e.getCause();
+				if (cause instanceof IOException)
+					throw (IOException) cause;
+				if (cause instanceof RuntimeException)
+					throw (RuntimeException) cause;
+				throw new IllegalStateException(cause);
+			}
+		}
+	
+	}
+	
 }
@@ -0,0 +1,226 @@
+/* This Source Code Form is subject to the terms of the hermA Licence.
+ * If a copy of the licence was not distributed with this file, You have
+ * received this Source Code Form in a manner that does not comply with
+ * the terms of the licence.
+ */
+package antcomp;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Answers queries for works in a corpus whose author name
+ * and title distances to a given author name and title
+ * are below given thresholds.
+ * <p>
+ * The corpus is loaded once and kept in memory,
+ * so that many queries can be answered without
+ * re-reading it. Queries can be made directly
+ * (using {@link #query(String, String, long, long)})
+ * or over HTTP (after calling {@link #start(int, int)}).
+ * </p>
+ * <p>
+ * Thresholds are <i>inclusive</i>, as for
+ * {@link OutputPairsForFullTextComparisonMetadataComparer}
+ * (which is used to perform the comparisons).
+ * The works with a matching author name are looked up in an
+ * {@link AuthorTrie}, so only their titles are compared;
+ * the titles of all works are split into words once in advance
+ * (see {@link PreSplitTitleSplitter}).
+ * </p>
+ * <p>
+ * Instances of this class are thread-safe.
+ * </p>
+ */
+public class MetadataQueryServer {
+	
+	private final MetadataLine[] pMetadata;
+	private final AuthorTrie pAuthorTrie;
+	private final Function<? super String, String[]> pTitleSplitter;
+	
+	private final long pAuthorThreshold;
+	private final long pTitleThreshold;
+	
+	/**
+	 * Initializes a new instance of this class.
+	 * 
+	 * @param metadata
+	 * the works to answer queries for; not {@code null},
+	 * and the elements must not be {@code null} either
+	 * 
+	 * @param titleSplitter
+	 * a {@link Function} that splits titles into words;
+	 * not {@code null}; must be thread-safe
+	 * 
+	 * @param authorThreshold
+	 * the default threshold for author name distances
+	 * 
+	 * @param titleThreshold
+	 * the default threshold for title distances
+	 */
+	public MetadataQueryServer(final MetadataLine[] metadata, final Function<? super String, String[]> titleSplitter, final long authorThreshold, final long titleThreshold) {
+		pMetadata = metadata.clone();
+		pAuthorTrie = new AuthorTrie(Arrays.asList(pMetadata));
+		pTitleSplitter = new PreSplitTitleSplitter(titleSplitter, Arrays.asList(pMetadata));
+		
+		if (authorThreshold < 0L)
+			throw new IllegalArgumentException("Author threshold (" + Long.toString(authorThreshold) + ") has to be at least 0.");
+		pAuthorThreshold = authorThreshold;
+		
+		if (titleThreshold < 0L)
+			throw new IllegalArgumentException("Title threshold (" + Long.toString(titleThreshold) + ") has to be at least 0.");
+		pTitleThreshold = titleThreshold;
+	}
+	
+	/**
+	 * Returns the indices of all works whose author name distance
+	 * to the given author name and title distance to the given title
+	 * are smaller than or equal to the given thresholds.
+	 * 
+	 * @param author
+	 * the author name; not {@code null}
+	 * 
+	 * @param title
+	 * the title; not {@code null}
+	 * 
+	 * @param authorThreshold
+	 * the threshold for author name distances
+	 * 
+	 * @param titleThreshold
+	 * the threshold for title distances
+	 * 
+	 * @return
+	 * the indices of the matching works, in ascending order
+	 */
+	public int[] query(final String author, final String title, final long authorThreshold, final long titleThreshold) {
+		final CollectingIndicesOutput output = new CollectingIndicesOutput();
+		final OutputPairsForFullTextComparisonMetadataComparer comparer = new OutputPairsForFullTextComparisonMetadataComparer(pTitleSplitter, authorThreshold, titleThreshold, output);
+		comparer.load(new MetadataLine(author, title, ""));
+		for (final int index : pAuthorTrie.query(author, authorThreshold)) {
+			output.setFirstIndex(index);
+			comparer.compareWith(pMetadata[index]);
+		}
+		return output.getIndices();
+	}
+	
+	/**
+	 * Starts answering queries over HTTP on the loopback interface.
+	 * <p>
+	 * Queries are {@code GET} requests for the path {@code /query}
+	 * with the URL parameters {@code author} and {@code title}
+	 * and, optionally, {@code a} (author threshold) and
+	 * {@code t} (title threshold); if a threshold is not given,
+	 * the corresponding threshold passed to the constructor is used.
+	 * The response is a UTF-8 plain text with one line per
+	 * matching work, containing the index, author name, title and
+	 * filename of the work (separated by {@code "\t"}).
+	 * </p>
+	 * 
+	 * @param port
+	 * the port to listen on
+	 * 
+	 * @param threads
+	 * the number of queries to answer concurrently;
+	 * must be at least {@code 1}
+	 * 
+	 * @return
+	 * the running {@link HttpServer}
+	 * 
+	 * @throws IOException
+	 * if the server could not be started
+	 */
+	public HttpServer start(final int port, final int threads) throws IOException {
+		final HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+		server.createContext("/query", this::handleQuery);
+		server.setExecutor(Executors.newFixedThreadPool(threads));
+		server.start();
+		return server;
+	}
+	
+	private void handleQuery(final HttpExchange exchange) throws IOException {
+		try {
+			if (!"GET".equals(exchange.getRequestMethod())) {
+				respond(exchange, 405, "only GET requests are supported\n");
+				return;
+			}
+			
+			final HashMap<String, String> parameters;
+			try {
+				parameters = parseQueryString(exchange.getRequestURI().getRawQuery());
+			} catch (final IllegalArgumentException e) {
+				respond(exchange, 400, "malformed query string\n");
+				return;
+			}
+			final String author = parameters.get("author");
+			final String title = parameters.get("title");
+			if ((author == null) || (title == null)) {
+				respond(exchange, 400, "parameters \"author\" and \"title\" are required\n");
+				return;
+			}
+			final long authorThreshold = parseThreshold(parameters.get("a"), pAuthorThreshold);
+			final long titleThreshold = parseThreshold(parameters.get("t"), pTitleThreshold);
+			if ((authorThreshold < 0L) || (titleThreshold < 0L)) {
+				respond(exchange, 400, "thresholds must be whole numbers >= 0\n");
+				return;
+			}
+			
+			final StringBuilder sb = new StringBuilder();
+			for (final int index : query(author, title, authorThreshold, titleThreshold)) {
+				final MetadataLine metadataLine = pMetadata[index];
+				sb.append(index).append('\t')
+					.append(metadataLine.getAuthor()).append('\t')
+					.append(metadataLine.getTitle()).append('\t')
+					.append(metadataLine.getFilename()).append('\n');
+			}
+			respond(exchange, 200, sb.toString());
+		} finally {
+			exchange.close();
+		}
+	}
+	
+	private static HashMap<String, String> parseQueryString(final String rawQuery) throws UnsupportedEncodingException {
+		final HashMap<String, String> result = new HashMap<>();
+		if (rawQuery == null)
+			return result;
+		for (final String parameter : rawQuery.split("&")) {
+			final int equals = parameter.indexOf('=');
+			if (equals < 0)
+				result.put(URLDecoder.decode(parameter, "UTF-8"), "");
+			else
+				result.put(URLDecoder.decode(parameter.substring(0, equals), "UTF-8"), URLDecoder.decode(parameter.substring(equals + 1), "UTF-8"));
+		}
+		return result;
+	}
+	
+	private static long parseThreshold(final String thresholdString, final long defaultThreshold) {
+		if (thresholdString == null)
+			return defaultThreshold;
+		try {
+			return Long.parseLong(thresholdString);
+		} catch (final NumberFormatException e) {
+			return -1L;
+		}
+	}
+	
+	private static void respond(final HttpExchange exchange, final int status, final String text) throws IOException {
+		final byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+		exchange.sendResponseHeaders(status, bytes.length);
+		try (final OutputStream body = exchange.getResponseBody()) {
+			body.write(bytes);
+		}
+	}
+	
+}
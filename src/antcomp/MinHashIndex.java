@@ -0,0 +1,288 @@
+/* This Source Code Form is subject to the terms of the hermA Licence.
+ * If a copy of the licence was not distributed with this file, You have
+ * received this Source Code Form in a manner that does not comply with
+ * the terms of the licence.
+ */
+package antcomp;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.LongConsumer;
+
+/**
+ * Finds pairs of {@link MetadataLine} instances with similar
+ * author names and titles using MinHash signatures and
+ * locality-sensitive hashing (LSH).
+ * <p>
+ * Every {@link MetadataLine} is represented by the set of
+ * character q-grams (with {@code q = }{@value #Q}) of its
+ * author name and of its title (case-insensitive, with
+ * author q-grams and title q-grams kept apart). For each set,
+ * a MinHash signature of {@code bands * rows} values is computed;
+ * the probability that two signature values are equal is the
+ * Jaccard similarity of the two sets. The signature is divided
+ * into {@code bands} bands of {@code rows} values each, and two
+ * {@link MetadataLine} instances become a candidate pair if they
+ * agree in all values of at least one band.
+ * </p>
+ * <p>
+ * The bands are processed in groups of as many bands as fit into
+ * {@value #MAX_BAND_HASHES} hash values (all bands for corpora of
+ * up to about 700,000 {@link MetadataLine} instances with 24 bands),
+ * so that only the hash values of one group have to be kept in
+ * memory. Within a group, a pair found in an earlier band is not
+ * found again, but it may be found again in a later group, so on
+ * larger corpora some candidate pairs are compared more than once
+ * (at most once per group).
+ * </p>
+ * <p>
+ * Optionally, the size of the buckets can be limited: If more
+ * {@link MetadataLine} instances than the limit agree in a band
+ * (for example many anonymous works with the same title), they
+ * are not all paired with each other; instead, they are sorted
+ * by title and author name, and only those less than the limit
+ * positions apart become candidate pairs (sorted-neighbourhood
+ * method), so that the number of candidate pairs per band grows
+ * linearly with the number of {@link MetadataLine} instances.
+ * This misses pairs that agree in a band, so it lowers the recall.
+ * </p>
+ * <p>
+ * This is an <i>approximate</i> method: Pairs whose author and
+ * title distances are below the thresholds may be missed
+ * (the more likely, the lower the similarity of the q-gram sets),
+ * and candidate pairs still have to be compared.
+ * </p>
+ */
+public class MinHashIndex {
+	
+	/**
+	 * The length of the character q-grams.
+	 */
+	public static final int Q = 3;
+	
+	/**
+	 * The value of the maximum bucket size meaning that
+	 * the size of the buckets is not limited.
+	 */
+	public static final int UNLIMITED_BUCKET_SIZE = Integer.MAX_VALUE;
+	
+	/**
+	 * The maximum number of band hash values kept in memory at once
+	 * (along with the position of each {@link MetadataLine} in its
+	 * bucket, if the bucket is too large).
+	 */
+	public static final int MAX_BAND_HASHES = 1 << 24;
+	
+	private static final long AUTHOR_SEED = 0x9E3779B97F4A7C15L;
+	private static final long TITLE_SEED = 0xC2B2AE3D27D4EB4FL;
+	
+	private final List<MetadataLine> pMetadata;
+	private final int pBands;
+	private final int pRows;
+	private final int pMaxBucketSize;
+	
+	/**
+	 * Initializes a new instance of this class for the given
+	 * {@link MetadataLine} instances.
+	 * <p>
+	 * The list is not copied and must not be changed
+	 * while this instance is in use.
+	 * </p>
+	 * 
+	 * @param metadata
+	 * the {@link MetadataLine} instances; not {@code null},
+	 * and the elements must not be {@code null} either
+	 * 
+	 * @param bands
+	 * the number of bands; at least {@code 1}
+	 * 
+	 * @param rows
+	 * the number of signature values per band; at least {@code 1}
+	 * 
+	 * @param maxBucketSize
+	 * the maximum number of {@link MetadataLine} instances in
+	 * a bucket that are all paired with each other;
+	 * at least {@code 2}, or {@link #UNLIMITED_BUCKET_SIZE}
+	 */
+	public MinHashIndex(final List<MetadataLine> metadata, final int bands, final int rows, final int maxBucketSize) {
+		if (bands < 1)
+			throw new IllegalArgumentException("Number of bands (" + Integer.toString(bands) + ") has to be at least 1.");
+		if (rows < 1)
+			throw new IllegalArgumentException("Number of rows (" + Integer.toString(rows) + ") has to be at least 1.");
+		if ((long) bands * rows > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("Signature length (" + Integer.toString(bands) + " bands * " + Integer.toString(rows) + " rows) has to be at most " + Integer.toString(Integer.MAX_VALUE) + ".");
+		if (maxBucketSize < 2)
+			throw new IllegalArgumentException("Maximum bucket size (" + Integer.toString(maxBucketSize) + ") has to be at least 2.");
+		
+		pMetadata = metadata;
+		pBands = bands;
+		pRows = rows;
+		pMaxBucketSize = maxBucketSize;
+	}
+	
+	/**
+	 * Passes all candidate pairs to a {@link LongConsumer}.
+	 * <p>
+	 * A pair of the {@link MetadataLine} instances with the
+	 * indices {@code i < j} (in the list passed to the constructor)
+	 * is encoded as {@code ((long) j << 32) | i}
+	 * (see {@link CollectingPairsOutput#encodePair(int, int)}).
+	 * The pairs are passed as they are found, without collecting
+	 * them first; a pair found in several bands is passed once
+	 * per group of bands (see the class documentation), and
+	 * thus possibly more than once.
+	 * </p>
+	 * 
+	 * @param consumer
+	 * the {@link LongConsumer} to pass the pairs to;
+	 * not {@code null}
+	 */
+	public void forEachCandidatePair(final LongConsumer consumer) {
+		final int n = pMetadata.size();
+		if (n == 0)
+			return;
+		
+		// so viele Baender auf einmal, wie Hashwerte aufbewahrt werden duerfen
+		final int groupSize = Math.max(1, Math.min(pBands, MAX_BAND_HASHES / n));
+		final int[][] bandHashes = new int[groupSize][n];
+		// Position im sortierten zu grossen Eimer, sonst -1
+		final int[][] positions = new int[groupSize][n];
+		final long[] bucketEntries = new long[n];
+		for (int firstBand = 0; firstBand < pBands; firstBand += groupSize) {
+			final int bands = Math.min(groupSize, pBands - firstBand);
+			computeBandHashes(firstBand, bands, bandHashes);
+			for (int band = 0; band < bands; band++) {
+				// Eintraege nach Band-Hash (obere 32 Bits) sortieren
+				final int[] hashes = bandHashes[band];
+				for (int r = 0; r < n; r++)
+					bucketEntries[r] = ((long) hashes[r] << 32) | r;
+				Arrays.sort(bucketEntries);
+				
+				Arrays.fill(positions[band], -1);
+				int start = 0;
+				while (start < n) {
+					final long bucket = bucketEntries[start] & 0xFFFFFFFF00000000L;
+					int end = start + 1;
+					while ((end < n) && ((bucketEntries[end] & 0xFFFFFFFF00000000L) == bucket))
+						end++;
+					if (end - start <= pMaxBucketSize)
+						passAllPairs(bucketEntries, start, end, bandHashes, positions, band, consumer);
+					else
+						passNeighbourPairs(bucketEntries, start, end, bandHashes, positions, band, consumer);
+					start = end;
+				}
+			}
+		}
+	}
+	
+	private void computeBandHashes(final int firstBand, final int bands, final int[][] bandHashes) {
+		final int k = bands * pRows;
+		final long[] hashSeeds = new long[k];
+		for (int i = 0; i < k; i++)
+			hashSeeds[i] = mix(((long) firstBand * pRows + i + 1L) * AUTHOR_SEED);
+		
+		// nur die Hashwerte der Baender aufbewahren, nicht die Signaturen
+		final long[] signature = new long[k];
+		final int n = pMetadata.size();
+		for (int r = 0; r < n; r++) {
+			final MetadataLine metadataLine = pMetadata.get(r);
+			Arrays.fill(signature, Long.MAX_VALUE);
+			addQGrams(metadataLine.getAuthor(), AUTHOR_SEED, hashSeeds, signature);
+			addQGrams(metadataLine.getTitle(), TITLE_SEED, hashSeeds, signature);
+			for (int band = 0; band < bands; band++) {
+				final int offset = band * pRows;
+				long h = firstBand + band;
+				for (int row = 0; row < pRows; row++)
+					h = mix(h ^ signature[offset + row]);
+				bandHashes[band][r] = (int) h;
+			}
+		}
+	}
+	
+	private boolean passedBefore(final int r1, final int r2, final int[][] bandHashes, final int[][] positions, final int band) {
+		// in einem frueheren Band derselben Gruppe im selben Eimer
+		// und, falls dieser zu gross war, nah genug beieinander
+		for (int b = 0; b < band; b++) {
+			if (bandHashes[b][r1] != bandHashes[b][r2])
+				continue;
+			final int position1 = positions[b][r1];
+			if ((position1 < 0) || (Math.abs(position1 - positions[b][r2]) < pMaxBucketSize))
+				return true;
+		}
+		return false;
+	}
+	
+	private void passAllPairs(final long[] bucketEntries, final int start, final int end, final int[][] bandHashes, final int[][] positions, final int band, final LongConsumer consumer) {
+		// innerhalb eines Eimers aufsteigend nach Index sortiert
+		for (int b = start + 1; b < end; b++) {
+			final int j = (int) (bucketEntries[b] & 0xFFFFFFFFL);
+			for (int a = start; a < b; a++) {
+				final int i = (int) (bucketEntries[a] & 0xFFFFFFFFL);
+				if (!passedBefore(i, j, bandHashes, positions, band))
+					consumer.accept(((long) j << 32) | i);
+			}
+		}
+	}
+	
+	private void passNeighbourPairs(final long[] bucketEntries, final int start, final int end, final int[][] bandHashes, final int[][] positions, final int band, final LongConsumer consumer) {
+		final int size = end - start;
+		final Integer[] order = new Integer[size];
+		for (int p = 0; p < size; p++)
+			order[p] = Integer.valueOf((int) (bucketEntries[start + p] & 0xFFFFFFFFL));
+		Arrays.sort(order, (r1, r2) -> {
+			final MetadataLine metadataLine1 = pMetadata.get(r1.intValue());
+			final MetadataLine metadataLine2 = pMetadata.get(r2.intValue());
+			final int result = metadataLine1.getTitle().compareTo(metadataLine2.getTitle());
+			return (result == 0) ? metadataLine1.getAuthor().compareTo(metadataLine2.getAuthor()) : result;
+		});
+		for (int p = 0; p < size; p++)
+			positions[band][order[p].intValue()] = p;
+		
+		for (int p = 0; p < size; p++) {
+			final int r1 = order[p].intValue();
+			final int windowEnd = Math.min(size, p + pMaxBucketSize);
+			for (int q = p + 1; q < windowEnd; q++) {
+				final int r2 = order[q].intValue();
+				if (!passedBefore(r1, r2, bandHashes, positions, band))
+					consumer.accept(CollectingPairsOutput.encodePair(r1, r2));
+			}
+		}
+	}
+	
+	private static void addQGrams(final String s, final long seed, final long[] hashSeeds, final long[] signature) {
+		final int size = EditDistances.codePointCount(s);
+		if (size == 0)
+			return;
+		final int[] codePoints = new int[size];
+		final int length = s.length();
+		int codePoint;
+		int c = 0;
+		for (int i = 0; i < length; i += Character.charCount(codePoint)) {
+			codePoint = Character.codePointAt(s, i);
+			codePoints[c++] = Character.toLowerCase(codePoint);
+		}
+		
+		// kurze Zeichenketten bilden ein einziges q-Gramm
+		final int qGramCount = Math.max(1, size - Q + 1);
+		final int qGramLength = Math.min(Q, size);
+		for (int i = 0; i < qGramCount; i++) {
+			long qGram = seed;
+			for (int j = 0; j < qGramLength; j++)
+				qGram = mix(qGram ^ codePoints[i + j]);
+			for (int h = 0; h < hashSeeds.length; h++) {
+				final long value = mix(qGram ^ hashSeeds[h]);
+				if (value < signature[h])
+					signature[h] = value;
+			}
+		}
+	}
+	
+	private static long mix(final long value) {
+		// Finalisierung aus MurmurHash3
+		long h = value;
+		h = (h ^ (h >>> 33)) * 0xFF51AFD7ED558CCDL;
+		h = (h ^ (h >>> 33)) * 0xC4CEB9FE1A85EC53L;
+		return h ^ (h >>> 33);
+	}
+	
+}
@@ -0,0 +1,156 @@
+/* This Source Code Form is subject to the terms of the hermA Licence.
+ * If a copy of the licence was not distributed with this file, You have
+ * received this Source Code Form in a manner that does not comply with
+ * the terms of the licence.
+ */
+package antcomp;
+
+import java.util.function.Function;
+
+/**
+ * {@link MetadataComparer} implementation that checks
+ * author and title distance against several pairs of
+ * thresholds at once and outputs every pair to each
+ * {@link IndicesOutput} whose thresholds it satisfies.
+ * <p>
+ * For every threshold pair, the output is the same as that of an
+ * {@link OutputPairsForFullTextComparisonMetadataComparer} with
+ * these thresholds (in particular, thresholds are <i>inclusive</i>),
+ * but the distances are computed only once:
+ * If the author name distance is above the largest author threshold,
+ * the title distance is not computed, and if the title distance
+ * is above the largest title threshold, no output is made.
+ * </p>
+ */
+public class MultiThresholdMetadataComparer implements MetadataComparer {
+	
+	private final Function<? super String, String[]> pTitleSplitter;
+	private final IndicesOutput[] pOutputs;
+	
+	private final long[] pAuthorThresholds;
+	private final long[] pTitleThresholds;
+	private final long pMaxAuthorThreshold;
+	private final long pMaxTitleThreshold;
+	
+	private String pAuthor;
+	private String pTitle;
+	
+	private String[] pTitleWords;
+	
+	private final BatchEditDistances pBatchEditDistances;
+	
+	/**
+	 * Initializes a new instance of this class.
+	 * 
+	 * @param titleSplitter
+	 * a {@link Function} that splits titles into words;
+	 * not {@code null}
+	 * 
+	 * @param authorThresholds
+	 * the thresholds for author name distances; not {@code null},
+	 * at least one element
+	 * 
+	 * @param titleThresholds
+	 * the thresholds for title distances; not {@code null},
+	 * same number of elements as {@code authorThresholds}
+	 * 
+	 * @param outputs
+	 * the {@link IndicesOutput} instances for outputting index pairs,
+	 * one for each pair of thresholds (at the same position);
+	 * not {@code null}, same number of elements as
+	 * {@code authorThresholds}, and the elements must not be
+	 * {@code null} either
+	 */
+	public MultiThresholdMetadataComparer(final Function<? super String, String[]> titleSplitter, final long[] authorThresholds, final long[] titleThresholds, final IndicesOutput[] outputs) {
+		pTitleSplitter = titleSplitter;
+		
+		final int count = authorThresholds.length;
+		if (count == 0)
+			throw new IllegalArgumentException("At least one pair of thresholds is required.");
+		if ((titleThresholds.length != count) || (outputs.length != count))
+			throw new IllegalArgumentException("Number of title thresholds (" + Integer.toString(titleThresholds.length) + ") and number of outputs (" + Integer.toString(outputs.length) + ") have to be equal to the number of author thresholds (" + Integer.toString(count) + ").");
+		
+		long maxAuthorThreshold = 0L;
+		long maxTitleThreshold = 0L;
+		for (int k = 0; k < count; k++) {
+			final long authorThreshold = authorThresholds[k];
+			if (authorThreshold < 0L)
+				throw new IllegalArgumentException("Author threshold (" + Long.toString(authorThreshold) + ") has to be at least 0.");
+			final long titleThreshold = titleThresholds[k];
+			if (titleThreshold < 0L)
+				throw new IllegalArgumentException("Title threshold (" + Long.toString(titleThreshold) + ") has to be at least 0.");
+			maxAuthorThreshold = Math.max(maxAuthorThreshold, authorThreshold);
+			maxTitleThreshold = Math.max(maxTitleThreshold, titleThreshold);
+		}
+		pAuthorThresholds = authorThresholds.clone();
+		pTitleThresholds = titleThresholds.clone();
+		pMaxAuthorThreshold = maxAuthorThreshold;
+		pMaxTitleThreshold = maxTitleThreshold;
+		pOutputs = outputs.clone();
+		
+		// null, wenn der Vektor-Kern nicht verfuegbar ist
+		pBatchEditDistances = BatchEditDistances.newInstance();
+	}
+	
+	@Override
+	public void load(final MetadataLine metadataLine) {
+		pAuthor = metadataLine.getAuthor();
+		pTitle = metadataLine.getTitle();
+		
+		pTitleWords = pTitleSplitter.apply(pTitle);
+		
+		if (pBatchEditDistances != null)
+			pBatchEditDistances.load(pAuthor);
+	}
+	
+	@Override
+	public void compareWith(final MetadataLine metadataLine) {
+		final String author = metadataLine.getAuthor();
+		final long authorDistance = pAuthor.equals(author) ? 0L : EditDistances.editDistance(author, pAuthor);
+		if (authorDistance <= pMaxAuthorThreshold)
+			compareTitle(metadataLine, authorDistance);
+	}
+	
+	@Override
+	public void compareWithBatch(final MetadataLine[] metadataLines, final int from, final int to, final Output output) {
+		if (pBatchEditDistances == null) {
+			MetadataComparer.super.compareWithBatch(metadataLines, from, to, output);
+			return;
+		}
+		
+		pBatchEditDistances.authorEditDistances(metadataLines, from, to, (index, authorDistance) -> {
+			if (authorDistance > pMaxAuthorThreshold)
+				return;
+			output.setFirstIndex(index);
+			compareTitle(metadataLines[index], authorDistance);
+		});
+	}
+	
+	private void compareTitle(final MetadataLine metadataLine, final long authorDistance) {
+		final long titleDistance = computeTitleDistance(metadataLine);
+		if (titleDistance > pMaxTitleThreshold)
+			return;
+		
+		for (int k = 0; k < pOutputs.length; k++)
+			if ((authorDistance <= pAuthorThresholds[k]) && (titleDistance <= pTitleThresholds[k]))
+				pOutputs[k].outputIndexPair();
+	}
+	
+	private long computeTitleDistance(final MetadataLine metadataLine) {
+		final String title = metadataLine.getTitle();
+		if (pTitle.equals(title))
+			return 0L;
+		
+		final String[] titleWords = pTitleSplitter.apply(title);
+		
+		// die zweite Richtung ist unnoetig, wenn die erste schon 0 ergibt
+		final long distance = EditDistances.substringEditDistance(titleWords, pTitleWords, EditDistances::codePointCount, EditDistances::codePointCount, EditDistances::editDistance);
+		if (distance == 0L)
+			return 0L;
+		return Math.min(
+				distance,
+				EditDistances.substringEditDistance(pTitleWords, titleWords, EditDistances::codePointCount, EditDistances::codePointCount, EditDistances::editDistance)
+			);
+	}
+	
+}
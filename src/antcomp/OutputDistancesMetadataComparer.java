@@ -22,6 +22,8 @@ public class OutputDistancesMetadataComparer implements MetadataComparer {
 	
 	private String[] pTitleWords;
 	
+	private final BatchEditDistances pBatchEditDistances;
+	
 	/**
 	 * Initializes a new instance of this class.
 	 * 
@@ -36,6 +38,9 @@ public class OutputDistancesMetadataComparer implements MetadataComparer {
 	public OutputDistancesMetadataComparer(final Function<? super String, String[]> titleSplitter, final DistancesOutput output) {
 		pTitleSplitter = titleSplitter;
 		pOutput = output;
+		
+		// null, wenn der Vektor-Kern nicht verfuegbar ist
+		pBatchEditDistances = BatchEditDistances.newInstance();
 	}
 	
 	@Override
@@ -44,6 +49,9 @@ public class OutputDistancesMetadataComparer implements MetadataComparer {
 		pTitle = metadataLine.getTitle();
 		
 		pTitleWords = pTitleSplitter.apply(pTitle);
+		
+		if (pBatchEditDistances != null)
+			pBatchEditDistances.load(pAuthor);
 	}
 	
 	@Override
@@ -54,6 +62,19 @@ public class OutputDistancesMetadataComparer implements MetadataComparer {
 			);
 	}
 	
+	@Override
+	public void compareWithBatch(final MetadataLine[] metadataLines, final int from, final int to, final Output output) {
+		if (pBatchEditDistances == null) {
+			MetadataComparer.super.compareWithBatch(metadataLines, from, to, output);
+			return;
+		}
+		
+		pBatchEditDistances.authorEditDistances(metadataLines, from, to, (index, authorDistance) -> {
+			output.setFirstIndex(index);
+			pOutput.outputDistances(authorDistance, computeTitleDistance(metadataLines[index]));
+		});
+	}
+	
 	private long computeAuthorDistance(final MetadataLine metadataLine) {
 		final String author = metadataLine.getAuthor();
 		return pAuthor.equals(author) ? 0L : EditDistances.editDistance(author, pAuthor);
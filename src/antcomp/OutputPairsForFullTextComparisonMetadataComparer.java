@@ -29,9 +29,46 @@ import java.util.function.Function;
  * implementations which have to always compute
  * both distances.
  * </p>
+ * <p>
+ * The order in which the two distances are checked is chosen
+ * for every comparison so as to minimize the expected cost:
+ * This implementation keeps track of how often each check
+ * passes (overall and, for the author check, also for the
+ * currently loaded {@link MetadataLine}) and estimates the
+ * cost of each check from the lengths of the compared strings
+ * and the time a sample of earlier checks took.
+ * For example, if the loaded author name is very common
+ * (or empty), the author check will almost always pass, so the
+ * title check is done first. As both checks have to pass for
+ * an index pair to be output, the order does not affect
+ * the result.
+ * </p>
+ * <p>
+ * Only checks whose result does not depend on the other check
+ * are counted: the check done first, and both checks in
+ * a sample of comparisons where they are always both done.
+ * Counting the second check only when the first one has passed
+ * would estimate how often it passes <i>given</i> that the first
+ * one has passed, which may be quite different (for example,
+ * works with similar titles often have similar author names).
+ * </p>
+ * <p>
+ * If author name distances can be computed in batches (see
+ * {@link BatchEditDistances}), the time of the batched
+ * computation is measured separately, on every batch;
+ * a batch is only computed this way if that is expected
+ * to be cheaper than both comparing one {@link MetadataLine}
+ * at a time and checking the titles first, or if its time
+ * has not been measured for a while.
+ * </p>
  */
 public class OutputPairsForFullTextComparisonMetadataComparer implements MetadataComparer {
 	
+	private static final double PRIOR_WEIGHT = 16.0;
+	private static final long MAX_CHECKS = 1L << 20;
+	private static final long SAMPLE_MASK = 31L;
+	private static final long BOTH_CHECKS_SAMPLE_MASK = 255L;
+	
 	private final Function<? super String, String[]> pTitleSplitter;
 	private final IndicesOutput pOutput;
 	
@@ -43,6 +80,26 @@ public class OutputPairsForFullTextComparisonMetadataComparer implements Metadat
 	
 	private String[] pTitleWords;
 	
+	private long pAuthorChecks;
+	private long pAuthorPasses;
+	private long pTitleChecks;
+	private long pTitlePasses;
+	
+	private long pLoadedAuthorChecks;
+	private long pLoadedAuthorPasses;
+	
+	private long pComparisons;
+	private long pAuthorRuns;
+	private long pTitleRuns;
+	
+	private double pAuthorUnitCost;
+	private double pBatchAuthorUnitCost;
+	private double pTitleUnitCost;
+	
+	private final BatchEditDistances pBatchEditDistances;
+	private final long[] pBatchAuthorDistances;
+	private long pBatchChecks;
+	
 	/**
 	 * Initializes a new instance of this class.
 	 * 
@@ -71,6 +128,14 @@ public class OutputPairsForFullTextComparisonMetadataComparer implements Metadat
 		if (titleThreshold < 0L)
 			throw new IllegalArgumentException("Title threshold (" + Long.toString(titleThreshold) + ") has to be at least 0.");
 		pTitleThreshold = titleThreshold;
+		
+		// null, wenn der Vektor-Kern nicht verfuegbar ist
+		pBatchEditDistances = BatchEditDistances.newInstance();
+		pBatchAuthorDistances = (pBatchEditDistances == null) ? null : new long[pBatchEditDistances.getLanes()];
+		
+		pAuthorUnitCost = 1.0;
+		pBatchAuthorUnitCost = Double.NaN;
+		pTitleUnitCost = 1.0;
 	}
 	
 	@Override
@@ -79,20 +144,170 @@ public class OutputPairsForFullTextComparisonMetadataComparer implements Metadat
 		pTitle = metadataLine.getTitle();
 		
 		pTitleWords = pTitleSplitter.apply(pTitle);
+		
+		if (pBatchEditDistances != null)
+			pBatchEditDistances.load(pAuthor);
+		
+		pLoadedAuthorChecks = 0L;
+		pLoadedAuthorPasses = 0L;
 	}
 	
 	@Override
 	public void compareWith(final MetadataLine metadataLine) {
-		if (authorDistanceOk(metadataLine) && titleDistanceOk(metadataLine))
+		final boolean ok;
+		if (bothChecksSampled()) {
+			final boolean authorOk = recordAuthorCheck(authorDistanceOk(metadataLine));
+			ok = recordTitleCheck(titleDistanceOk(metadataLine)) && authorOk;
+		} else if (authorFirst(metadataLine.getAuthor().length(), metadataLine.getTitle().length())) {
+			ok = recordAuthorCheck(authorDistanceOk(metadataLine)) && titleDistanceOk(metadataLine);
+		} else {
+			ok = recordTitleCheck(titleDistanceOk(metadataLine)) && authorDistanceOk(metadataLine);
+		}
+		if (ok)
 			pOutput.outputIndexPair();
 	}
 	
+	@Override
+	public void compareWithBatch(final MetadataLine[] metadataLines, final int from, final int to, final Output output) {
+		if (pBatchEditDistances == null) {
+			MetadataComparer.super.compareWithBatch(metadataLines, from, to, output);
+			return;
+		}
+		
+		final long[] authorDistances = pBatchAuthorDistances;
+		final int lanes = pBatchEditDistances.getLanes();
+		for (int start = from; start < to; start += lanes) {
+			final int end = Math.min(start + lanes, to);
+			long authorLengths = 0L;
+			long maxAuthorLength = 0L;
+			long titleLengths = 0L;
+			for (int index = start; index < end; index++) {
+				final MetadataLine metadataLine = metadataLines[index];
+				final int authorLength = metadataLine.getAuthor().length();
+				authorLengths += authorLength;
+				if (authorLength > maxAuthorLength)
+					maxAuthorLength = authorLength;
+				titleLengths += metadataLine.getTitle().length();
+			}
+			
+			final int count = end - start;
+			if (!batchFirst(authorLengths / count, maxAuthorLength, titleLengths / count)) {
+				for (int index = start; index < end; index++) {
+					output.setFirstIndex(index);
+					compareWith(metadataLines[index]);
+				}
+				continue;
+			}
+			
+			// nur die Autorendistanzen messen, Titel danach pruefen
+			final int batchStart = start;
+			final long startNanos = System.nanoTime();
+			pBatchEditDistances.authorEditDistances(metadataLines, start, end, (index, authorDistance) -> authorDistances[index - batchStart] = authorDistance);
+			final long nanos = (System.nanoTime() - startNanos) / count;
+			
+			// alle Spuren werden auf den laengsten Kandidaten aufgefuellt
+			final double units = authorCostUnits(maxAuthorLength);
+			if (Double.isNaN(pBatchAuthorUnitCost))
+				pBatchAuthorUnitCost = nanos / units;
+			else
+				pBatchAuthorUnitCost = updateUnitCost(pBatchAuthorUnitCost, nanos, units);
+			
+			for (int index = start; index < end; index++) {
+				final boolean authorOk = recordAuthorCheck(authorDistances[index - start] <= pAuthorThreshold);
+				final boolean ok;
+				if (bothChecksSampled())
+					ok = recordTitleCheck(titleDistanceOk(metadataLines[index])) && authorOk;
+				else
+					ok = authorOk && titleDistanceOk(metadataLines[index]);
+				if (ok) {
+					output.setFirstIndex(index);
+					pOutput.outputIndexPair();
+				}
+			}
+		}
+	}
+	
+	private boolean batchFirst(final long authorLength, final long maxAuthorLength, final long titleLength) {
+		// noch nicht oder laenger nicht gemessen: ausprobieren
+		if (Double.isNaN(pBatchAuthorUnitCost) || (pBatchChecks++ & SAMPLE_MASK) == 0L)
+			return true;
+		
+		final double batchAuthorCost = pBatchAuthorUnitCost * authorCostUnits(maxAuthorLength);
+		if (batchAuthorCost >= pAuthorUnitCost * authorCostUnits(authorLength))
+			return false;
+		final double titleCost = pTitleUnitCost * titleCostUnits(titleLength);
+		return batchAuthorCost * (1.0 - titlePassRate()) <= titleCost * (1.0 - authorPassRate());
+	}
+	
+	private boolean bothChecksSampled() {
+		// beide Pruefungen unabhaengig vom Ergebnis der anderen zaehlen
+		return (pComparisons++ & BOTH_CHECKS_SAMPLE_MASK) == 0L;
+	}
+	
+	private boolean authorFirst(final long authorLength, final long titleLength) {
+		// erwartete Kosten: c(A) + p(A) c(T) gegenueber c(T) + p(T) c(A)
+		final double authorCost = pAuthorUnitCost * authorCostUnits(authorLength);
+		final double titleCost = pTitleUnitCost * titleCostUnits(titleLength);
+		return authorCost * (1.0 - titlePassRate()) <= titleCost * (1.0 - authorPassRate());
+	}
+	
+	private double authorCostUnits(final long authorLength) {
+		return (double) (authorLength + 1L) * (double) (pAuthor.length() + 1);
+	}
+	
+	private double titleCostUnits(final long titleLength) {
+		return (double) (titleLength + 1L) * (double) (pTitle.length() + 1);
+	}
+	
+	private static double updateUnitCost(final double unitCost, final long nanos, final double units) {
+		return unitCost + ((double) nanos / units - unitCost) * 0.125;
+	}
+	
+	private double authorPassRate() {
+		// Gesamtrate als Prior fuer die Rate des geladenen Datensatzes
+		final double overall = (double) (pAuthorPasses + 1L) / (double) (pAuthorChecks + 2L);
+		return ((double) pLoadedAuthorPasses + PRIOR_WEIGHT * overall) / ((double) pLoadedAuthorChecks + PRIOR_WEIGHT);
+	}
+	
+	private double titlePassRate() {
+		return (double) (pTitlePasses + 1L) / (double) (pTitleChecks + 2L);
+	}
+	
+	private boolean recordAuthorCheck(final boolean passed) {
+		pLoadedAuthorChecks++;
+		if (++pAuthorChecks > MAX_CHECKS) {
+			pAuthorChecks >>>= 1;
+			pAuthorPasses >>>= 1;
+		}
+		if (passed) {
+			pLoadedAuthorPasses++;
+			pAuthorPasses++;
+		}
+		return passed;
+	}
+	
+	private boolean recordTitleCheck(final boolean passed) {
+		if (++pTitleChecks > MAX_CHECKS) {
+			pTitleChecks >>>= 1;
+			pTitlePasses >>>= 1;
+		}
+		if (passed)
+			pTitlePasses++;
+		return passed;
+	}
+	
 	private boolean authorDistanceOk(final MetadataLine metadataLine) {
 		final String author = metadataLine.getAuthor();
 		if (pAuthor.equals(author))
 			return true;
 		
-		return EditDistances.editDistance(author, pAuthor) <= pAuthorThreshold;
+		if ((pAuthorRuns++ & SAMPLE_MASK) != 0L)
+			return EditDistances.editDistance(author, pAuthor) <= pAuthorThreshold;
+		
+		final long start = System.nanoTime();
+		final boolean passed = EditDistances.editDistance(author, pAuthor) <= pAuthorThreshold;
+		pAuthorUnitCost = updateUnitCost(pAuthorUnitCost, System.nanoTime() - start, authorCostUnits(author.length()));
+		return passed;
 	}
 	
 	private boolean titleDistanceOk(final MetadataLine metadataLine) {
@@ -100,6 +315,16 @@ public class OutputPairsForFullTextComparisonMetadataComparer implements Metadat
 		if (pTitle.equals(title))
 			return true;
 		
+		if ((pTitleRuns++ & SAMPLE_MASK) != 0L)
+			return titleWordsDistanceOk(title);
+		
+		final long start = System.nanoTime();
+		final boolean passed = titleWordsDistanceOk(title);
+		pTitleUnitCost = updateUnitCost(pTitleUnitCost, System.nanoTime() - start, titleCostUnits(title.length()));
+		return passed;
+	}
+	
+	private boolean titleWordsDistanceOk(final String title) {
 		final String[] titleWords = pTitleSplitter.apply(title);
 		
 		return (titleWordsDistance(titleWords, pTitleWords) <= pTitleThreshold)
@@ -0,0 +1,58 @@
+/* This Source Code Form is subject to the terms of the hermA Licence.
+ * If a copy of the licence was not distributed with this file, You have
+ * received this Source Code Form in a manner that does not comply with
+ * the terms of the licence.
+ */
+package antcomp;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.function.Function;
+
+/**
+ * A {@link Function} that splits titles into words,
+ * looking up the titles of a given collection of
+ * {@link MetadataLine} instances in a table computed once
+ * in advance.
+ * <p>
+ * Titles not in the table are split by another {@link Function}
+ * on every call. The returned arrays are shared between calls
+ * and must not be modified.
+ * </p>
+ * <p>
+ * Instances of this class are thread-safe if the other
+ * {@link Function} is.
+ * </p>
+ */
+public class PreSplitTitleSplitter implements Function<String, String[]> {
+	
+	private final Function<? super String, String[]> pTitleSplitter;
+	private final HashMap<String, String[]> pTitleWords;
+	
+	/**
+	 * Initializes a new instance of this class, splitting
+	 * the titles of the given {@link MetadataLine} instances.
+	 * 
+	 * @param titleSplitter
+	 * a {@link Function} that splits titles into words;
+	 * not {@code null}
+	 * 
+	 * @param metadata
+	 * the {@link MetadataLine} instances whose titles
+	 * to split in advance; not {@code null},
+	 * and the elements must not be {@code null} either
+	 */
+	public PreSplitTitleSplitter(final Function<? super String, String[]> titleSplitter, final Collection<MetadataLine> metadata) {
+		pTitleSplitter = titleSplitter;
+		pTitleWords = new HashMap<>();
+		for (final MetadataLine metadataLine : metadata)
+			pTitleWords.computeIfAbsent(metadataLine.getTitle(), titleSplitter);
+	}
+	
+	@Override
+	public String[] apply(final String title) {
+		final String[] titleWords = pTitleWords.get(title);
+		return (titleWords == null) ? pTitleSplitter.apply(title) : titleWords;
+	}
+	
+}
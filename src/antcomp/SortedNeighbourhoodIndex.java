@@ -0,0 +1,141 @@
+/* This Source Code Form is subject to the terms of the hermA Licence.
+ * If a copy of the licence was not distributed with this file, You have
+ * received this Source Code Form in a manner that does not comply with
+ * the terms of the licence.
+ */
+package antcomp;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.LongConsumer;
+
+/**
+ * Finds pairs of {@link MetadataLine} instances to compare
+ * using the sorted-neighbourhood method.
+ * <p>
+ * The {@link MetadataLine} instances are sorted several times,
+ * each time by a different key, and only those within a sliding
+ * window of a fixed size become candidate pairs. The keys are:
+ * </p>
+ * <ol>
+ * <li>the normalized author name, then the normalized title,</li>
+ * <li>the normalized author name, reversed
+ * (to find author names differing near the beginning),
+ * then the normalized title,</li>
+ * <li>the normalized first word of the title,
+ * then the normalized author name and</li>
+ * <li>the normalized title, then the normalized author name.</li>
+ * </ol>
+ * <p>
+ * Normalization converts to lower case and removes all
+ * characters which are neither letters nor digits.
+ * The second part of each key orders works with the same
+ * first part (such as many works by the same author or with
+ * an empty author name) so that similar ones are close.
+ * With {@code n} {@link MetadataLine} instances and a window of
+ * size {@code w}, at most {@code 4 n (w - 1)} pairs are found.
+ * </p>
+ * <p>
+ * This is an <i>approximate</i> method: Pairs whose author and
+ * title distances are below the thresholds may be missed,
+ * and candidate pairs still have to be compared.
+ * </p>
+ */
+public class SortedNeighbourhoodIndex {
+	
+	// kleiner als alle Zeichen nach der Normalisierung
+	private static final char KEY_SEPARATOR = '\u0000';
+	
+	private final String[][] pKeys;
+	
+	/**
+	 * Initializes a new instance of this class, computing
+	 * the sort keys of the given {@link MetadataLine} instances.
+	 * 
+	 * @param metadata
+	 * the {@link MetadataLine} instances; not {@code null},
+	 * and the elements must not be {@code null} either
+	 * 
+	 * @param titleSplitter
+	 * a {@link Function} that splits titles into words;
+	 * not {@code null}
+	 */
+	public SortedNeighbourhoodIndex(final List<MetadataLine> metadata, final Function<? super String, String[]> titleSplitter) {
+		final int n = metadata.size();
+		pKeys = new String[4][n];
+		for (int r = 0; r < n; r++) {
+			final MetadataLine metadataLine = metadata.get(r);
+			final String author = normalize(metadataLine.getAuthor());
+			final String title = normalize(metadataLine.getTitle());
+			pKeys[0][r] = author + KEY_SEPARATOR + title;
+			pKeys[1][r] = new StringBuilder(author).reverse().append(KEY_SEPARATOR).append(title).toString();
+			pKeys[2][r] = normalize(firstWord(titleSplitter.apply(metadataLine.getTitle()))) + KEY_SEPARATOR + author;
+			pKeys[3][r] = title + KEY_SEPARATOR + author;
+		}
+	}
+	
+	/**
+	 * Passes all candidate pairs to a {@link LongConsumer}.
+	 * <p>
+	 * A pair of the {@link MetadataLine} instances with the
+	 * indices {@code i < j} (in the list passed to the constructor)
+	 * is encoded as {@code ((long) j << 32) | i}, as for
+	 * {@link MinHashIndex#forEachCandidatePair(LongConsumer)}.
+	 * Every pair is passed only once, even if it is found in
+	 * more than one sort order; for this, the pairs passed so far
+	 * are kept in a {@link LongHashSet} (at most {@code 4 n (w - 1)}
+	 * of them).
+	 * </p>
+	 * 
+	 * @param consumer
+	 * the {@link LongConsumer} to pass the pairs to;
+	 * not {@code null}
+	 * 
+	 * @param window
+	 * the size of the sliding window; at least {@code 2}
+	 */
+	public void forEachCandidatePair(final LongConsumer consumer, final int window) {
+		if (window < 2)
+			throw new IllegalArgumentException("Window size (" + Integer.toString(window) + ") has to be at least 2.");
+		
+		final LongHashSet seenPairs = new LongHashSet();
+		for (final String[] keys : pKeys) {
+			final int n = keys.length;
+			final Integer[] order = new Integer[n];
+			for (int r = 0; r < n; r++)
+				order[r] = Integer.valueOf(r);
+			Arrays.sort(order, (r1, r2) -> keys[r1.intValue()].compareTo(keys[r2.intValue()]));
+			
+			for (int p = 0; p < n; p++) {
+				final int r1 = order[p].intValue();
+				final int end = Math.min(n, p + window);
+				for (int q = p + 1; q < end; q++) {
+					final long pair = CollectingPairsOutput.encodePair(r1, order[q].intValue());
+					if (seenPairs.add(pair))
+						consumer.accept(pair);
+				}
+			}
+		}
+	}
+	
+	private static String firstWord(final String[] words) {
+		for (final String word : words)
+			if (!word.isEmpty())
+				return word;
+		return "";
+	}
+	
+	private static String normalize(final String s) {
+		final StringBuilder sb = new StringBuilder(s.length());
+		final int length = s.length();
+		int codePoint;
+		for (int i = 0; i < length; i += Character.charCount(codePoint)) {
+			codePoint = Character.codePointAt(s, i);
+			if (Character.isLetterOrDigit(codePoint))
+				sb.appendCodePoint(Character.toLowerCase(codePoint));
+		}
+		return sb.toString();
+	}
+	
+}
@@ -0,0 +1,39 @@
+/* This Source Code Form is subject to the terms of the hermA Licence.
+ * If a copy of the licence was not distributed with this file, You have
+ * received this Source Code Form in a manner that does not comply with
+ * the terms of the licence.
+ */
+package antcomp;
+
+/**
+ * {@link Output} implementation that passes index pairs
+ * on to another {@link Output} with the two indices swapped:
+ * The first index is set as the second index of the other
+ * {@link Output} and vice versa.
+ */
+public class SwappingOutput implements Output {
+	
+	private final Output pOutput;
+	
+	/**
+	 * Initializes a new instance of this class.
+	 * 
+	 * @param output
+	 * the {@link Output} to pass the swapped indices on to;
+	 * not {@code null}
+	 */
+	public SwappingOutput(final Output output) {
+		pOutput = output;
+	}
+	
+	@Override
+	public void setFirstIndex(final int index) {
+		pOutput.setSecondIndex(index);
+	}
+	
+	@Override
+	public void setSecondIndex(final int index) {
+		pOutput.setFirstIndex(index);
+	}
+	
+}
@@ -0,0 +1,367 @@
+/* This Source Code Form is subject to the terms of the hermA Licence.
+ * If a copy of the licence was not distributed with this file, You have
+ * received this Source Code Form in a manner that does not comply with
+ * the terms of the licence.
+ */
+package antcomp;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Inverted index over the title words of a list of
+ * {@link MetadataLine} instances, used to find those pairs
+ * of titles whose title distance (as computed by
+ * {@link OutputPairsForFullTextComparisonMetadataComparer})
+ * <i>may</i> be below a given threshold.
+ * <p>
+ * The index exploits the following property of the title
+ * distance: If the title distance of two titles is smaller
+ * than or equal to the threshold {@code t}, then one of the
+ * titles can be transformed into a part of the other title
+ * with total costs of at most {@code t}. Deleting a word
+ * costs as much as the word is long, therefore every word of
+ * the first title which is longer than {@code t} characters
+ * (a <i>long</i> word) must be substituted with a word of
+ * the other title within an edit distance of at most {@code t}
+ * (a <i>neighbour</i> of the long word). So it suffices to
+ * require this for a single long word, and this index uses
+ * the rarest one (the one whose neighbours occur in the
+ * fewest titles; prefix filtering with a prefix of length 1).
+ * Titles without long words cannot be excluded this way
+ * and are candidates for all other titles.
+ * </p>
+ * <p>
+ * The neighbours of a word are found in the vocabulary of all
+ * title words using a length filter and a filter on the
+ * number of distinct shared q-grams
+ * (with {@code q = }{@value #Q}): Each edit operation
+ * can remove at most {@code q} distinct q-grams of a word,
+ * so a neighbour shares at least {@code d - q t} distinct
+ * q-grams with a word that has {@code d} distinct q-grams.
+ * The remaining words are verified using
+ * {@link EditDistances#editDistance(CharSequence, CharSequence)}.
+ * </p>
+ * <p>
+ * The candidates are exact in the sense that no pair whose
+ * title distance is below the threshold will be missed;
+ * candidates still have to be compared.
+ * </p>
+ */
+public class TitleWordIndex implements CandidateIndex {
+	
+	/**
+	 * The length of the q-grams used to find
+	 * the neighbours of long words.
+	 */
+	public static final int Q = 2;
+	
+	private static final int[] EMPTY = new int[0];
+	
+	private final long pTitleThreshold;
+	
+	private final String[] pVocabulary;
+	private final int[] pWordLengths;
+	private final int[][] pRecordWords;
+	private final int[][] pPostings;
+	
+	private final int[] pKeyWords;
+	private final int[][] pNeighbours;
+	private final int[][] pKeyedBy;
+	private final int[] pUnrestricted;
+	
+	private final int[] pStamps;
+	private int pStamp;
+	
+	/**
+	 * Initializes a new instance of this class, indexing the titles
+	 * of the given {@link MetadataLine} instances.
+	 * 
+	 * @param metadata
+	 * the {@link MetadataLine} instances; not {@code null},
+	 * and the elements must not be {@code null} either
+	 * 
+	 * @param titleSplitter
+	 * a {@link Function} that splits titles into words;
+	 * not {@code null}; must be the same as for the comparisons
+	 * 
+	 * @param titleThreshold
+	 * the threshold for title distances
+	 */
+	public TitleWordIndex(final List<MetadataLine> metadata, final Function<? super String, String[]> titleSplitter, final long titleThreshold) {
+		if (titleThreshold < 0L)
+			throw new IllegalArgumentException("Title threshold (" + Long.toString(titleThreshold) + ") has to be at least 0.");
+		pTitleThreshold = titleThreshold;
+		
+		final int n = metadata.size();
+		
+		// Vokabular und Woerter der Titel
+		final HashMap<String, Integer> wordIds = new HashMap<>();
+		pRecordWords = new int[n][];
+		for (int r = 0; r < n; r++) {
+			final String[] words = titleSplitter.apply(metadata.get(r).getTitle());
+			final int[] ids = new int[words.length];
+			for (int k = 0; k < words.length; k++) {
+				final Integer id = wordIds.computeIfAbsent(words[k], word -> Integer.valueOf(wordIds.size()));
+				ids[k] = id.intValue();
+			}
+			pRecordWords[r] = distinct(ids);
+		}
+		final int v = wordIds.size();
+		pVocabulary = new String[v];
+		for (final Map.Entry<String, Integer> entry : wordIds.entrySet())
+			pVocabulary[entry.getValue().intValue()] = entry.getKey();
+		pWordLengths = new int[v];
+		for (int w = 0; w < v; w++)
+			pWordLengths[w] = EditDistances.codePointCount(pVocabulary[w]);
+		
+		pPostings = invert(pRecordWords, v);
+		
+		// Schluesselwoerter: jeweils das seltenste lange Wort
+		pNeighbours = new int[v][];
+		pKeyWords = new int[n];
+		final int[] keyCandidates = new int[n];
+		int unrestricted = 0;
+		final NeighbourFinder neighbourFinder = new NeighbourFinder();
+		for (int r = 0; r < n; r++) {
+			int keyWord = -1;
+			long keyCost = Long.MAX_VALUE;
+			for (final int w : pRecordWords[r]) {
+				if (pWordLengths[w] <= pTitleThreshold)
+					continue;
+				if (pNeighbours[w] == null)
+					pNeighbours[w] = neighbourFinder.neighbours(w);
+				long cost = 0L;
+				for (final int neighbour : pNeighbours[w])
+					cost += pPostings[neighbour].length;
+				if (cost < keyCost) {
+					keyCost = cost;
+					keyWord = w;
+				}
+			}
+			pKeyWords[r] = keyWord;
+			if (keyWord < 0)
+				keyCandidates[unrestricted++] = r;
+		}
+		pUnrestricted = Arrays.copyOf(keyCandidates, unrestricted);
+		
+		final int[][] keyNeighbours = new int[n][];
+		for (int r = 0; r < n; r++)
+			keyNeighbours[r] = (pKeyWords[r] < 0) ? EMPTY : pNeighbours[pKeyWords[r]];
+		pKeyedBy = invert(keyNeighbours, v);
+		
+		pStamps = new int[n];
+		pStamp = 0;
+	}
+	
+	/**
+	 * Determines the candidates among the {@link MetadataLine}
+	 * instances before the given one (in the list passed to the
+	 * constructor) whose title distance to the given one
+	 * may be below the threshold.
+	 */
+	@Override
+	public int candidatesBefore(final int index, final int[] result) {
+		final int keyWord = pKeyWords[index];
+		if (keyWord < 0)
+			return -1;
+		
+		if (++pStamp == 0) {
+			Arrays.fill(pStamps, 0);
+			pStamp = 1;
+		}
+		int count = 0;
+		
+		// die langen Woerter dieses Titels im anderen Titel
+		for (final int neighbour : pNeighbours[keyWord])
+			count = addBefore(pPostings[neighbour], index, result, count);
+		
+		// die langen Woerter des anderen Titels in diesem Titel
+		for (final int w : pRecordWords[index])
+			count = addBefore(pKeyedBy[w], index, result, count);
+		
+		count = addBefore(pUnrestricted, index, result, count);
+		
+		Arrays.sort(result, 0, count);
+		return count;
+	}
+	
+	private int addBefore(final int[] records, final int index, final int[] result, final int count) {
+		final int stamp = pStamp;
+		final int[] stamps = pStamps;
+		int c = count;
+		for (final int r : records) {
+			if (r >= index)
+				break;
+			if (stamps[r] != stamp) {
+				stamps[r] = stamp;
+				result[c++] = r;
+			}
+		}
+		return c;
+	}
+	
+	private static int[] distinct(final int[] ids) {
+		final int[] sorted = ids.clone();
+		Arrays.sort(sorted);
+		int count = 0;
+		for (int k = 0; k < sorted.length; k++)
+			if ((k == 0) || (sorted[k] != sorted[k - 1]))
+				sorted[count++] = sorted[k];
+		return Arrays.copyOf(sorted, count);
+	}
+	
+	/*
+	 * Kehrt eine Zuordnung von Elementen (Index des aeusseren Arrays)
+	 * zu Schluesseln um; die Elemente in den Ergebnislisten sind
+	 * aufsteigend sortiert.
+	 */
+	private static int[][] invert(final int[][] keysByElement, final int keyCount) {
+		final int[] sizes = new int[keyCount];
+		for (final int[] keys : keysByElement)
+			for (final int key : keys)
+				sizes[key]++;
+		final int[][] result = new int[keyCount][];
+		for (int key = 0; key < keyCount; key++)
+			result[key] = new int[sizes[key]];
+		Arrays.fill(sizes, 0);
+		for (int element = 0; element < keysByElement.length; element++)
+			for (final int key : keysByElement[element])
+				result[key][sizes[key]++] = element;
+		return result;
+	}
+	
+	private static long[] distinctQGrams(final String word) {
+		final int length = word.length();
+		final int size = EditDistances.codePointCount(word);
+		if (size < Q)
+			return new long[0];
+		final int[] codePoints = new int[size];
+		int codePoint;
+		int k = 0;
+		for (int i = 0; i < length; i += Character.charCount(codePoint)) {
+			codePoint = Character.codePointAt(word, i);
+			codePoints[k++] = codePoint;
+		}
+		final long[] qGrams = new long[size - Q + 1];
+		for (int i = 0; i < qGrams.length; i++) {
+			long qGram = 0L;
+			for (int j = 0; j < Q; j++)
+				qGram = (qGram << 21) | codePoints[i + j];
+			qGrams[i] = qGram;
+		}
+		Arrays.sort(qGrams);
+		int count = 0;
+		for (int i = 0; i < qGrams.length; i++)
+			if ((i == 0) || (qGrams[i] != qGrams[i - 1]))
+				qGrams[count++] = qGrams[i];
+		return Arrays.copyOf(qGrams, count);
+	}
+	
+	/*
+	 * Findet die Nachbarn von Woertern im Vokabular.
+	 * Der q-Gramm-Index wird erst bei Bedarf aufgebaut.
+	 */
+	private class NeighbourFinder {
+		
+		private HashMap<Long, int[]> pQGramPostings;
+		private int[] pByLength;
+		private int[] pLengthStarts;
+		
+		private int[] pCounts;
+		private int[] pTouched;
+		
+		int[] neighbours(final int word) {
+			if (pQGramPostings == null)
+				build();
+			
+			final String string = pVocabulary[word];
+			final int length = pWordLengths[word];
+			final long threshold = pTitleThreshold;
+			final long[] qGrams = distinctQGrams(string);
+			final long minShared = qGrams.length - Q * threshold;
+			
+			int[] result = new int[16];
+			int count = 0;
+			if (minShared > 0L) {
+				// Filter ueber gemeinsame q-Gramme
+				int touched = 0;
+				for (final long qGram : qGrams) {
+					final int[] postings = pQGramPostings.get(Long.valueOf(qGram));
+					for (final int other : postings) {
+						if (pCounts[other]++ == 0)
+							pTouched[touched++] = other;
+					}
+				}
+				for (int k = 0; k < touched; k++) {
+					final int other = pTouched[k];
+					if ((pCounts[other] >= minShared) && (Math.abs(pWordLengths[other] - length) <= threshold) && (EditDistances.editDistance(string, pVocabulary[other]) <= threshold)) {
+						if (count == result.length)
+							result = Arrays.copyOf(result, 2 * count);
+						result[count++] = other;
+					}
+					pCounts[other] = 0;
+				}
+			} else {
+				// Filter ueber die Laenge
+				final int minLength = (int) Math.max(0L, length - threshold);
+				final int maxLength = (int) Math.min(pLengthStarts.length - 2, length + threshold);
+				for (int k = pLengthStarts[minLength]; k < pLengthStarts[maxLength + 1]; k++) {
+					final int other = pByLength[k];
+					if (EditDistances.editDistance(string, pVocabulary[other]) <= threshold) {
+						if (count == result.length)
+							result = Arrays.copyOf(result, 2 * count);
+						result[count++] = other;
+					}
+				}
+			}
+			return Arrays.copyOf(result, count);
+		}
+		
+		private void build() {
+			final int v = pVocabulary.length;
+			
+			final HashMap<Long, int[]> qGramPostings = new HashMap<>();
+			final HashMap<Long, Integer> qGramSizes = new HashMap<>();
+			final long[][] qGrams = new long[v][];
+			for (int w = 0; w < v; w++) {
+				qGrams[w] = distinctQGrams(pVocabulary[w]);
+				for (final long qGram : qGrams[w])
+					qGramSizes.merge(Long.valueOf(qGram), Integer.valueOf(1), Integer::sum);
+			}
+			for (final Map.Entry<Long, Integer> entry : qGramSizes.entrySet())
+				qGramPostings.put(entry.getKey(), new int[entry.getValue().intValue()]);
+			qGramSizes.clear();
+			for (int w = 0; w < v; w++) {
+				for (final long qGram : qGrams[w]) {
+					final Long key = Long.valueOf(qGram);
+					final int position = qGramSizes.merge(key, Integer.valueOf(1), Integer::sum).intValue() - 1;
+					qGramPostings.get(key)[position] = w;
+				}
+			}
+			pQGramPostings = qGramPostings;
+			
+			int maxLength = 0;
+			for (final int length : pWordLengths)
+				if (length > maxLength)
+					maxLength = length;
+			pLengthStarts = new int[maxLength + 2];
+			for (final int length : pWordLengths)
+				pLengthStarts[length + 1]++;
+			for (int length = 1; length < pLengthStarts.length; length++)
+				pLengthStarts[length] += pLengthStarts[length - 1];
+			pByLength = new int[v];
+			final int[] positions = Arrays.copyOf(pLengthStarts, pLengthStarts.length);
+			for (int w = 0; w < v; w++)
+				pByLength[positions[pWordLengths[w]]++] = w;
+			
+			pCounts = new int[v];
+			pTouched = new int[v];
+		}
+	
+	}
+	
+}
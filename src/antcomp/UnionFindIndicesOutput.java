@@ -0,0 +1,212 @@
+/* This Source Code Form is subject to the terms of the hermA Licence.
+ * If a copy of the licence was not distributed with this file, You have
+ * received this Source Code Form in a manner that does not comply with
+ * the terms of the licence.
+ */
+package antcomp;
+
+import java.util.Arrays;
+
+/**
+ * {@link IndicesOutput} implementation that groups indices
+ * into clusters: Two indices belong to the same cluster
+ * if they have been output as an index pair or if they are
+ * connected by a chain of output index pairs (that is,
+ * the clusters are the connected components of the graph
+ * formed by the output index pairs).
+ * <p>
+ * The clusters are maintained in an array-based union-find
+ * structure. Additionally, those output index pairs which
+ * merged two clusters are kept; they form a spanning forest
+ * of the graph, so that every cluster with {@code k} indices
+ * is connected by exactly {@code k - 1} of them.
+ * </p>
+ * <p>
+ * The mechanism for loading the indices is an implementation of
+ * {@link Output}.
+ * </p>
+ */
+public class UnionFindIndicesOutput implements Output, IndicesOutput {
+	
+	private final int[] pParents;
+	private final int[] pSizes;
+	
+	private int[] pSpanningPairs;
+	private int pSpanningPairsLength;
+	
+	private int pIndex1;
+	private int pIndex2;
+	
+	/**
+	 * Initializes a new instance of this class.
+	 * 
+	 * @param size
+	 * the number of indices; indices must be at least {@code 0}
+	 * and smaller than this number
+	 */
+	public UnionFindIndicesOutput(final int size) {
+		pParents = new int[size];
+		pSizes = new int[size];
+		for (int i = 0; i < size; i++) {
+			pParents[i] = i;
+			pSizes[i] = 1;
+		}
+		pSpanningPairs = new int[16];
+		pSpanningPairsLength = 0;
+	}
+	
+	@Override
+	public void outputIndexPair() {
+		final int root1 = find(pIndex1);
+		final int root2 = find(pIndex2);
+		if (root1 == root2)
+			return;
+		
+		// kleineren Baum unter den groesseren haengen
+		if (pSizes[root1] < pSizes[root2]) {
+			pParents[root1] = root2;
+			pSizes[root2] += pSizes[root1];
+		} else {
+			pParents[root2] = root1;
+			pSizes[root1] += pSizes[root2];
+		}
+		
+		if (pSpanningPairsLength == pSpanningPairs.length)
+			pSpanningPairs = Arrays.copyOf(pSpanningPairs, 2 * pSpanningPairsLength);
+		pSpanningPairs[pSpanningPairsLength++] = pIndex1;
+		pSpanningPairs[pSpanningPairsLength++] = pIndex2;
+	}
+	
+	@Override
+	public void setFirstIndex(final int index) {
+		pIndex1 = index;
+	}
+	
+	@Override
+	public void setSecondIndex(final int index) {
+		pIndex2 = index;
+	}
+	
+	/**
+	 * Checks whether two indices are in the same cluster.
+	 * <p>
+	 * This can be used to skip comparisons whose result would not
+	 * change the clusters.
+	 * </p>
+	 * 
+	 * @param index1
+	 * the first index
+	 * 
+	 * @param index2
+	 * the second index
+	 * 
+	 * @return
+	 * whether the two indices are in the same cluster
+	 */
+	public boolean connected(final int index1, final int index2) {
+		return find(index1) == find(index2);
+	}
+	
+	/**
+	 * Returns all clusters with at least two indices.
+	 * <p>
+	 * The indices in each cluster are sorted in ascending order,
+	 * and the clusters are sorted by their smallest index.
+	 * </p>
+	 * 
+	 * @return
+	 * the clusters with at least two indices
+	 */
+	public int[][] getClusters() {
+		final int n = pParents.length;
+		final int[] clusterNumbers = numberClusters();
+		final int clusterCount = countClusters(clusterNumbers);
+		
+		final int[][] result = new int[clusterCount][];
+		final int[] positions = new int[clusterCount];
+		for (int i = 0; i < n; i++) {
+			final int clusterNumber = clusterNumbers[i];
+			if (clusterNumber < 0)
+				continue;
+			if (result[clusterNumber] == null)
+				result[clusterNumber] = new int[pSizes[find(i)]];
+			result[clusterNumber][positions[clusterNumber]++] = i;
+		}
+		return result;
+	}
+	
+	/**
+	 * Returns, for every cluster with at least two indices,
+	 * the output index pairs connecting it.
+	 * <p>
+	 * The clusters are in the same order as returned by
+	 * {@link #getClusters()}; for every cluster, the index pairs
+	 * are stored in one array, with the two indices of each pair
+	 * at consecutive positions (first index before second index),
+	 * and in the order in which they were output.
+	 * </p>
+	 * 
+	 * @return
+	 * the index pairs connecting the clusters
+	 * with at least two indices
+	 */
+	public int[][] getSpanningPairs() {
+		final int[] clusterNumbers = numberClusters();
+		final int clusterCount = countClusters(clusterNumbers);
+		
+		final int[][] result = new int[clusterCount][];
+		final int[] positions = new int[clusterCount];
+		for (int k = 0; k < pSpanningPairsLength; k += 2) {
+			final int index1 = pSpanningPairs[k];
+			final int clusterNumber = clusterNumbers[index1];
+			if (result[clusterNumber] == null)
+				result[clusterNumber] = new int[2 * (pSizes[find(index1)] - 1)];
+			result[clusterNumber][positions[clusterNumber]++] = index1;
+			result[clusterNumber][positions[clusterNumber]++] = pSpanningPairs[k + 1];
+		}
+		return result;
+	}
+	
+	private int find(final int index) {
+		// Pfadhalbierung
+		int i = index;
+		while (pParents[i] != i) {
+			pParents[i] = pParents[pParents[i]];
+			i = pParents[i];
+		}
+		return i;
+	}
+	
+	/*
+	 * Nummeriert die Cluster mit mindestens zwei Indizes
+	 * in der Reihenfolge ihres kleinsten Index;
+	 * Indizes in einelementigen Clustern erhalten -1.
+	 */
+	private int[] numberClusters() {
+		final int n = pParents.length;
+		final int[] rootNumbers = new int[n];
+		Arrays.fill(rootNumbers, -1);
+		final int[] result = new int[n];
+		int clusterCount = 0;
+		for (int i = 0; i < n; i++) {
+			final int root = find(i);
+			if (pSizes[root] < 2) {
+				result[i] = -1;
+				continue;
+			}
+			if (rootNumbers[root] < 0)
+				rootNumbers[root] = clusterCount++;
+			result[i] = rootNumbers[root];
+		}
+		return result;
+	}
+	
+	private static int countClusters(final int[] clusterNumbers) {
+		int max = -1;
+		for (final int clusterNumber : clusterNumbers)
+			if (clusterNumber > max)
+				max = clusterNumber;
+		return max + 1;
+	}
+	
+}